@@ -29,6 +29,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    // Unit test JVM: android.util.Log dkk. jadi no-op alih-alih melempar "not mocked"
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+    }
 }
 dependencies {
     // Tambahkan Retrofit untuk REST API
@@ -45,11 +49,21 @@ dependencies {
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    // LiveData untuk snapshot repository produk/transaksi (versi sama dengan yang dibawa appcompat)
+    implementation("androidx.lifecycle:lifecycle-livedata-core:2.6.1")
     testImplementation(libs.junit)
+    // Server pengganti lokal untuk menguji ResumableUploader
+    testImplementation("com.squareup.okhttp3:mockwebserver:5.0.0-alpha.2")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 
     // Glide for image loading
     implementation("com.github.bumptech.glide:glide:4.16.0")
     annotationProcessor("com.github.bumptech.glide:compiler:4.16.0")
+    // Glide memakai OkHttpClient bersama
+    implementation("com.github.bumptech.glide:okhttp3-integration:4.16.0")
+    // Preload gambar tile produk di RecyclerView
+    implementation("com.github.bumptech.glide:recyclerview-integration:4.16.0") {
+        isTransitive = false
+    }
 }
\ No newline at end of file
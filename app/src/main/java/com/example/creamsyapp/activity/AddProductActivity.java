@@ -1,8 +1,6 @@
 package com.example.creamsyapp.activity;
 
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.text.TextUtils;
@@ -16,13 +14,23 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 
+import com.bumptech.glide.Glide;
+import com.example.creamsyapp.image.ImagePreparer;
+import com.example.creamsyapp.image.ProductImages;
 import com.example.creamsyapp.product.IceCreamProduct;
 import com.example.creamsyapp.R;
+import com.example.creamsyapp.repository.ProductRepository;
+import com.example.creamsyapp.supabase.Futures;
 import com.example.creamsyapp.supabase.SupabaseHelper;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class AddProductActivity extends AppCompatActivity {
+    // Id produk yang diedit (tanpa extra = tambah produk baru); datanya dibaca dari ProductRepository
+    public static final String EXTRA_PRODUCT_ID = "product_id";
+
     private EditText etProductName, etProductPrice, etProductStock;
     private Button btnSave, btnSelectImage;
     private ImageView ivProductPreview;
@@ -31,7 +39,11 @@ public class AddProductActivity extends AppCompatActivity {
     private int selectedImageResId = R.drawable.ic_default_product;
     private byte[] selectedImageBytes = null;
     private String uploadedImageUrl = null;
-    private String selectedFileName = null;
+    private Map<Integer, byte[]> selectedVariants = null;
+    private Map<String, String> uploadedImageSizes = null;
+    private CharSequence saveLabel;
+    private ImagePreparer imagePreparer;
+    private ImagePreparer.Task pendingPreparation;
 
     private final ActivityResultLauncher<String> pickImageLauncher =
             registerForActivityResult(new ActivityResultContracts.GetContent(), uri -> {
@@ -54,9 +66,16 @@ public class AddProductActivity extends AppCompatActivity {
         ivProductPreview = findViewById(R.id.iv_product_preview);
 
         // Periksa apakah ini mode edit
-        if (getIntent().hasExtra("edit_product")) {
+        String editProductId = getIntent().getStringExtra(EXTRA_PRODUCT_ID);
+        if (editProductId != null) {
+            editProduct = ProductRepository.getInstance(this).findById(editProductId);
+            if (editProduct == null) {
+                // Katalog belum dimuat (mis. proses dimulai ulang) atau produk sudah dihapus
+                Toast.makeText(this, "Produk tidak ditemukan", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
             isEditMode = true;
-            editProduct = getIntent().getParcelableExtra("edit_product");
 
             // Isi form dengan data produk yang akan diedit
             etProductName.setText(editProduct.getName());
@@ -65,29 +84,54 @@ public class AddProductActivity extends AppCompatActivity {
             btnSave.setText("Perbarui Produk");
             selectedImageResId = editProduct.getImageResId();
             ivProductPreview.setImageResource(selectedImageResId);
+            // Pertahankan gambar yang sudah ada bila tidak memilih gambar baru
+            uploadedImageUrl = editProduct.getImageUrl();
+            uploadedImageSizes = editProduct.getImageSizes();
+            int previewSize = ivProductPreview.getLayoutParams().width;
+            String previewUrl = ProductImages.urlFor(editProduct, previewSize, previewSize);
+            if (previewUrl != null && !previewUrl.isEmpty()) {
+                ProductImages.request(Glide.with(this), previewUrl, previewSize, previewSize).into(ivProductPreview);
+            }
         }
 
+        saveLabel = btnSave.getText();
+        imagePreparer = new ImagePreparer(getContentResolver());
+
         // Setup tombol pilih gambar (Gallery)
         btnSelectImage.setOnClickListener(v -> pickImageLauncher.launch("image/*"));
     }
 
+    // Decode + resize + encode di background; pilihan gambar sebelumnya yang belum selesai dibatalkan
     private void handleImagePicked(Uri uri) {
-        try {
-            // Load and compress to JPEG to keep size low
-            Bitmap bitmap = BitmapFactory.decodeStream(getContentResolver().openInputStream(uri));
-            if (bitmap != null) {
-                java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-                bitmap.compress(Bitmap.CompressFormat.JPEG, 85, baos);
-                selectedImageBytes = baos.toByteArray();
-                ivProductPreview.setImageBitmap(bitmap);
-                selectedFileName = "product_" + System.currentTimeMillis() + ".jpg";
-                uploadedImageUrl = null; // reset, will upload on save
-            } else {
-                Toast.makeText(this, "Gagal memuat gambar", Toast.LENGTH_SHORT).show();
+        if (pendingPreparation != null) pendingPreparation.cancel();
+        btnSave.setEnabled(false);
+        pendingPreparation = imagePreparer.prepare(uri, new ImagePreparer.Callback() {
+            @Override
+            public void onPrepared(ImagePreparer.PreparedImage image) {
+                pendingPreparation = null;
+                btnSave.setEnabled(true);
+                selectedImageBytes = image.getBytes();
+                selectedVariants = image.getVariants();
+                ivProductPreview.setImageBitmap(image.getBitmap());
+                uploadedImageUrl = null;
+                uploadedImageSizes = null;
+                // Mulai upload di background sekarang; saat simpan tinggal menunggu/menumpang upload ini
+                uploadSelectedImage(null);
             }
-        } catch (Exception e) {
-            Toast.makeText(this, "Gagal memilih gambar: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        }
+
+            @Override
+            public void onError(String error) {
+                pendingPreparation = null;
+                btnSave.setEnabled(true);
+                Toast.makeText(AddProductActivity.this, "Gagal memuat gambar: " + error, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pendingPreparation != null) pendingPreparation.cancel();
     }
 
     public void saveProduct(View view) {
@@ -117,28 +161,58 @@ public class AddProductActivity extends AppCompatActivity {
         // Jika ada gambar yang dipilih dari perangkat, upload dulu ke Supabase Storage
         if (selectedImageBytes != null && uploadedImageUrl == null) {
             btnSave.setEnabled(false);
-            SupabaseHelper.getInstance().uploadImageToStorage(selectedImageBytes, selectedFileName, new SupabaseHelper.SimpleCallback() {
-                @Override
-                public void onSuccess(String url) {
-                    runOnUiThread(() -> {
-                        uploadedImageUrl = url;
-                        proceedSaveProduct(name, price, stock);
-                    });
-                }
-
-                @Override
-                public void onError(String error) {
-                    runOnUiThread(() -> {
-                        btnSave.setEnabled(true);
-                        Toast.makeText(AddProductActivity.this, "Upload gambar gagal: " + error, Toast.LENGTH_SHORT).show();
-                    });
-                }
-            });
+            uploadSelectedImage(() -> proceedSaveProduct(name, price, stock));
         } else {
             proceedSaveProduct(name, price, stock);
         }
     }
 
+    // Upload resumable; progres ditampilkan di tombol simpan. onUploaded null = upload awal saat gambar dipilih
+    private void uploadSelectedImage(Runnable onUploaded) {
+        byte[] bytes = selectedImageBytes;
+        Map<Integer, byte[]> variants = selectedVariants;
+        SupabaseHelper.getInstance().uploadImageResumable(bytes, new SupabaseHelper.UploadCallback() {
+            @Override
+            public void onProgress(long uploaded, long total) {
+                if (isDestroyed() || onUploaded == null) return;
+                int percent = total > 0 ? (int) (uploaded * 100 / total) : 0;
+                btnSave.setText("Mengunggah " + percent + "%");
+            }
+
+            @Override
+            public void onSuccess(String url) {
+                if (isDestroyed() || bytes != selectedImageBytes) return;
+                // Lalu varian thumbnail; gagal upload varian tidak menghalangi simpan (adapter memakai gambar asli)
+                SupabaseHelper.getInstance().uploadImageVariants(variants, new SupabaseHelper.VariantsCallback() {
+                    @Override
+                    public void onSuccess(Map<String, String> urlsBySize) {
+                        onImageUploaded(url, urlsBySize);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        onImageUploaded(url, null);
+                    }
+
+                    private void onImageUploaded(String imageUrl, Map<String, String> sizes) {
+                        if (isDestroyed() || bytes != selectedImageBytes) return;
+                        uploadedImageUrl = imageUrl;
+                        uploadedImageSizes = sizes;
+                        if (onUploaded != null) onUploaded.run();
+                    }
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                if (isDestroyed() || onUploaded == null) return;
+                btnSave.setEnabled(true);
+                btnSave.setText(saveLabel);
+                Toast.makeText(AddProductActivity.this, "Upload gambar gagal: " + error, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
     private void proceedSaveProduct(String name, double price, int stock) {
         // Buat objek produk
         IceCreamProduct product;
@@ -152,14 +226,30 @@ public class AddProductActivity extends AppCompatActivity {
                     productId, name, price, stock, selectedImageResId, imageUrl);
         }
 
-        // Kembalikan produk ke activity pemanggil
-        Intent resultIntent = new Intent();
-        if (isEditMode) {
-            resultIntent.putExtra("edit_product", product);
-        } else {
-            resultIntent.putExtra("new_product", product);
-        }
-        setResult(RESULT_OK, resultIntent);
-        finish();
+        product.setImageSizes(uploadedImageSizes);
+
+        // Simpan lewat repository; katalog bersama diperbarui sehingga layar lain tidak perlu memuat ulang
+        btnSave.setEnabled(false);
+        btnSave.setText("Menyimpan...");
+        ProductRepository repository = ProductRepository.getInstance(this);
+        CompletableFuture<String> save = isEditMode
+                ? repository.updateProduct(product)
+                : repository.addProduct(product);
+        save.whenComplete((id, error) -> runOnUiThread(() -> {
+            if (isDestroyed()) return;
+            if (error != null) {
+                btnSave.setEnabled(true);
+                btnSave.setText(saveLabel);
+                Toast.makeText(this, (isEditMode ? "Gagal memperbarui produk: " : "Gagal menambahkan produk: ")
+                        + Futures.messageOf(error), Toast.LENGTH_SHORT).show();
+                return;
+            }
+            Toast.makeText(this, isEditMode ? "Produk berhasil diperbarui" : "Produk berhasil ditambahkan",
+                    Toast.LENGTH_SHORT).show();
+            Intent resultIntent = new Intent();
+            resultIntent.putExtra(EXTRA_PRODUCT_ID, id);
+            setResult(RESULT_OK, resultIntent);
+            finish();
+        }));
     }
 }
\ No newline at end of file
@@ -15,6 +15,8 @@ import com.example.creamsyapp.R;
 import com.example.creamsyapp.supabase.SupabaseHelper;
 
 public class AuthActivity extends AppCompatActivity {
+    private static final String EXTRA_PRECONNECT = "preconnect";
+    private static final String EXTRA_CLEAR_METRICS = "clear_metrics";
     private EditText etEmail, etPassword;
     private Button btnLogin;
     private SupabaseHelper supabaseHelper;
@@ -26,6 +28,10 @@ public class AuthActivity extends AppCompatActivity {
 
         supabaseHelper = SupabaseHelper.getInstance();
         supabaseHelper.init(getApplicationContext());
+        // Hangatkan koneksi ke Supabase selagi sesi dipulihkan / user mengetik.
+        // Extra "preconnect"=false / "clear_metrics"=true hanya dipakai scripts/measure_ttfp.sh
+        if (getIntent().getBooleanExtra(EXTRA_CLEAR_METRICS, false)) supabaseHelper.clearLaunchMetrics();
+        supabaseHelper.preconnect(getIntent().getBooleanExtra(EXTRA_PRECONNECT, true));
 
         // Coba pulihkan/refresh sesi; jika berhasil langsung masuk ke Main
         supabaseHelper.initializeSession(this, new SupabaseHelper.SessionInitCallback() {
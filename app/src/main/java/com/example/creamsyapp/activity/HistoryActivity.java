@@ -8,41 +8,59 @@ import android.content.ActivityNotFoundException;
 import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
 import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.Button;
 import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.creamsyapp.R;
+import com.example.creamsyapp.repository.TransactionRepository;
+import com.example.creamsyapp.supabase.Futures;
 import com.example.creamsyapp.supabase.SupabaseHelper;
+import com.example.creamsyapp.product.IceCreamProduct;
 import com.example.creamsyapp.product.Transaction;
+import com.example.creamsyapp.product.TransactionItem;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public class HistoryActivity extends AppCompatActivity {
-    private List<Transaction> transactionHistory;
+    private final List<Transaction> transactionHistory = new ArrayList<>();
+    private TransactionRepository transactionRepository;
     private ArrayAdapter<Transaction> historyAdapter;
+    private ListView historyListView;
     private boolean isDeletingMode = false;
-    private List<Transaction> selectedTransactions = new ArrayList<>();
+    // Dipilih berdasarkan id: baris penjualan tertunda dibuat ulang setiap kali journal berubah
+    private final Set<String> selectedIds = new LinkedHashSet<>();
+
+    // Paginasi riwayat: halaman berikutnya dimuat saat pengguna menggulir mendekati akhir daftar
+    private static final int PREFETCH_THRESHOLD = 10;
+    // Ekspor WA memuat riwayat per halaman (keyset) beserta itemnya; tiap halaman langsung ditulis ke teks
+    private static final int EXPORT_PAGE_SIZE = 200;
+    private Button btnSendWa;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_history);
 
-        // Ambil riwayat transaksi dari intent (sebagai fallback awal)
-        transactionHistory = getIntent().getParcelableArrayListExtra("transactions");
-        if (transactionHistory == null) {
-            transactionHistory = new ArrayList<>();
-        }
+        transactionRepository = TransactionRepository.getInstance(this);
 
         // Setup ListView untuk riwayat transaksi
-        ListView historyListView = findViewById(R.id.history_list_view);
+        historyListView = findViewById(R.id.history_list_view);
         historyAdapter = new ArrayAdapter<Transaction>(this,
                 R.layout.transaction_item, transactionHistory) {
             @Override
@@ -62,7 +80,7 @@ public class HistoryActivity extends AppCompatActivity {
 
                 // Tampilkan checkbox untuk mode penghapusan
                 tvSelect.setVisibility(isDeletingMode ? View.VISIBLE : View.GONE);
-                tvSelect.setText(selectedTransactions.contains(transaction) ? "✓" : "○");
+                tvSelect.setText(selectedIds.contains(transaction.getId()) ? "✓" : "○");
 
                 return convertView;
             }
@@ -74,7 +92,7 @@ public class HistoryActivity extends AppCompatActivity {
         btnBack.setOnClickListener(v -> {
             if (isDeletingMode) {
                 isDeletingMode = false;
-                selectedTransactions.clear();
+                selectedIds.clear();
                 historyAdapter.notifyDataSetChanged();
                 updateDeleteUI();
             } else {
@@ -86,21 +104,21 @@ public class HistoryActivity extends AppCompatActivity {
         Button btnDelete = findViewById(R.id.btn_delete);
         btnDelete.setOnClickListener(v -> {
             if (isDeletingMode) {
-                if (selectedTransactions.isEmpty()) {
+                if (selectedIds.isEmpty()) {
                     showDeleteConfirmationDialog();
                 } else {
                     deleteSelectedTransactions();
                 }
             } else {
                 isDeletingMode = true;
-                selectedTransactions.clear();
+                selectedIds.clear();
                 historyAdapter.notifyDataSetChanged();
                 updateDeleteUI();
             }
         });
 
         // Setup tombol Kirim ke WA
-        Button btnSendWa = findViewById(R.id.btn_send_wa);
+        btnSendWa = findViewById(R.id.btn_send_wa);
         if (btnSendWa != null) {
             btnSendWa.setOnClickListener(v -> sendHistoryToWhatsApp());
         }
@@ -112,10 +130,8 @@ public class HistoryActivity extends AppCompatActivity {
         historyListView.setOnItemClickListener((parent, view, position, id) -> {
             if (isDeletingMode) {
                 Transaction transaction = transactionHistory.get(position);
-                if (selectedTransactions.contains(transaction)) {
-                    selectedTransactions.remove(transaction);
-                } else {
-                    selectedTransactions.add(transaction);
+                if (!selectedIds.remove(transaction.getId())) {
+                    selectedIds.add(transaction.getId());
                 }
                 historyAdapter.notifyDataSetChanged();
                 updateDeleteUI();
@@ -124,15 +140,39 @@ public class HistoryActivity extends AppCompatActivity {
             }
         });
 
-        // Muat ulang riwayat transaksi dari Supabase agar selalu terbaru (dan memiliki ID dari DB)
-        refreshTransactions();
-    }
+        historyListView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+                if (scrollState == SCROLL_STATE_IDLE) prefetchVisibleItems();
+            }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        // Pastikan data terbaru saat kembali ke layar ini
-        refreshTransactions();
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (totalItemCount > 0 && firstVisibleItem + visibleItemCount >= totalItemCount - PREFETCH_THRESHOLD) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        // Riwayat bersama dengan MainActivity (halaman pertama + penjualan baru); halaman pertama
+        // hanya dimuat di sini bila belum pernah dimuat
+        transactionRepository.getTransactions().observe(this, snapshot -> {
+            transactionHistory.clear();
+            transactionHistory.addAll(snapshot);
+            Set<String> snapshotIds = new HashSet<>();
+            for (Transaction t : snapshot) snapshotIds.add(t.getId());
+            selectedIds.retainAll(snapshotIds);
+            if (snapshot.isEmpty()) isDeletingMode = false;
+            historyAdapter.notifyDataSetChanged();
+            updateDeleteUI();
+        });
+        if (transactionRepository.isLoaded()) {
+            historyListView.post(() -> prefetchVisibleItems());
+        } else {
+            transactionRepository.refresh().thenRun(() -> runOnUiThread(() -> {
+                if (!isDestroyed()) historyListView.post(() -> prefetchVisibleItems());
+            }));
+        }
     }
 
     private void sendHistoryToWhatsApp() {
@@ -140,7 +180,54 @@ public class HistoryActivity extends AppCompatActivity {
             Toast.makeText(this, "Tidak ada riwayat transaksi", Toast.LENGTH_SHORT).show();
             return;
         }
-        String message = buildHistoryMessage(transactionHistory);
+        if (btnSendWa != null) btnSendWa.setEnabled(false);
+        Toast.makeText(this, "Menyiapkan riwayat...", Toast.LENGTH_SHORT).show();
+        // Penjualan yang belum tersinkron belum ada di server; masukkan lebih dulu (terbaru)
+        HistoryMessage message = new HistoryMessage();
+        for (Transaction t : transactionRepository.pendingSales()) message.appendPending(t);
+        exportPage(message, null);
+    }
+
+    private void exportPage(HistoryMessage message, SupabaseHelper.PageCursor after) {
+        SupabaseHelper.getInstance().streamTransactionsPage(after, EXPORT_PAGE_SIZE,
+                SupabaseHelper.EXPORT_TRANSACTION_COLUMNS, new SupabaseHelper.TransactionStreamCallback() {
+                    @Override
+                    public void onBatch(List<Transaction> batch) {
+                        for (Transaction t : batch) message.append(t);
+                    }
+
+                    @Override
+                    public void onComplete(int count, SupabaseHelper.PageCursor next) {
+                        if (isDestroyed()) return;
+                        if (next != null) {
+                            exportPage(message, next);
+                        } else {
+                            finishExport(message, null);
+                        }
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        if (!isDestroyed()) finishExport(message, error);
+                    }
+                });
+    }
+
+    // Bila ada halaman yang gagal dimuat, pesan tetap dikirim dengan penanda "belum lengkap"
+    private void finishExport(HistoryMessage message, String error) {
+        if (btnSendWa != null) btnSendWa.setEnabled(true);
+        if (error != null) {
+            if (message.count == 0) {
+                Toast.makeText(this, "Gagal memuat riwayat: " + error, Toast.LENGTH_LONG).show();
+                return;
+            }
+            Toast.makeText(this, "Riwayat belum lengkap, hanya " + message.count
+                    + " transaksi yang terkirim", Toast.LENGTH_LONG).show();
+        }
+        shareHistoryMessage(message.build(error != null));
+    }
+
+    private void shareHistoryMessage(String message) {
 
         // Intent umum
         Intent sendIntent = new Intent(Intent.ACTION_SEND);
@@ -169,46 +256,76 @@ public class HistoryActivity extends AppCompatActivity {
         startActivity(Intent.createChooser(sendIntent, "Kirim riwayat via"));
     }
 
-    private String buildHistoryMessage(List<Transaction> txs) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Riwayat Transaksi\n");
-        sb.append("===================\n");
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-        double totalAll = 0.0;
-        int idx = 1;
-        for (Transaction t : txs) {
+    // Teks riwayat yang dibangun per transaksi, sehingga halaman ekspor tidak perlu disimpan
+    private static class HistoryMessage {
+        private final StringBuilder rows = new StringBuilder();
+        private final SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
+        // Id penjualan tertunda; bila tersinkron selama ekspor, baris servernya tidak dihitung dua kali
+        private final Set<String> pendingIds = new HashSet<>();
+        private double totalAll = 0.0;
+        private int count = 0;
+
+        void appendPending(Transaction t) {
+            pendingIds.add(t.getId());
+            write(t);
+        }
+
+        void append(Transaction t) {
+            if (!pendingIds.contains(t.getId())) write(t);
+        }
+
+        private void write(Transaction t) {
             Date ts = t.getTimestamp();
             String dateString = ts != null ? sdf.format(ts) : "-";
             double total = t.getTotal();
             totalAll += total;
-            sb.append(String.format(Locale.getDefault(), "%d. %s | Total: Rp %.0f | Bayar: Rp %.0f | Kembali: Rp %.0f\n",
-                    idx++, dateString, total, t.getAmountPaid(), t.getChange()));
+            rows.append(String.format(Locale.getDefault(), "%d. %s | Total: Rp %.0f | Bayar: Rp %.0f | Kembali: Rp %.0f\n",
+                    ++count, dateString, total, t.getAmountPaid(), t.getChange()));
+            appendItemLines(rows, t.getItems());
+        }
+
+        String build(boolean partial) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Riwayat Transaksi\n");
+            if (partial) sb.append("(Belum lengkap: sebagian riwayat gagal dimuat)\n");
+            sb.append("===================\n");
+            sb.append(rows);
+            sb.append("-------------------\n");
+            sb.append(String.format(Locale.getDefault(), "Jumlah transaksi: %d\n", count));
+            sb.append(String.format(Locale.getDefault(), "Total keseluruhan: Rp %.0f\n", totalAll));
+            return sb.toString();
         }
-        sb.append("-------------------\n");
-        sb.append(String.format(Locale.getDefault(), "Jumlah transaksi: %d\n", txs.size()));
-        sb.append(String.format(Locale.getDefault(), "Total keseluruhan: Rp %.0f\n", totalAll));
-        return sb.toString();
     }
 
-    private void refreshTransactions() {
-        SupabaseHelper.getInstance().loadTransactions(new SupabaseHelper.TransactionsCallback() {
-            @Override
-            public void onSuccess(List<Transaction> transactions) {
-                runOnUiThread(() -> {
-                    transactionHistory.clear();
-                    transactionHistory.addAll(transactions);
-                    selectedTransactions.clear();
-                    isDeletingMode = false;
-                    historyAdapter.notifyDataSetChanged();
-                    updateDeleteUI();
-                });
-            }
+    // Ringkas item per produk: "   - 2x Nama @ Rp 5000"
+    private static void appendItemLines(StringBuilder sb, List<IceCreamProduct> items) {
+        if (items == null || items.isEmpty()) return;
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        Map<String, Double> prices = new HashMap<>();
+        for (IceCreamProduct p : items) {
+            String name = p.getName() != null ? p.getName() : "-";
+            quantities.put(name, quantities.getOrDefault(name, 0) + 1);
+            prices.put(name, p.getPrice());
+        }
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            sb.append(String.format(Locale.getDefault(), "   - %dx %s @ Rp %.0f\n",
+                    entry.getValue(), entry.getKey(), prices.get(entry.getKey())));
+        }
+    }
 
-            @Override
-            public void onError(String error) {
-                // Biarkan tampilan memakai data intent jika ada; tampilkan error ringan opsional
-            }
-        });
+    private void loadNextPage() {
+        if (transactionRepository.hasMorePages()) transactionRepository.loadNextPage();
+    }
+
+    // Prefetch item untuk semua baris yang terlihat dalam satu request agar dialog detail langsung terisi
+    private void prefetchVisibleItems() {
+        if (historyListView == null || transactionHistory.isEmpty()) return;
+        int first = Math.max(0, historyListView.getFirstVisiblePosition());
+        int last = Math.min(transactionHistory.size() - 1,
+                Math.max(historyListView.getLastVisiblePosition(), first + PREFETCH_THRESHOLD));
+        List<String> ids = new ArrayList<>();
+        for (int i = first; i <= last; i++) ids.add(transactionHistory.get(i).getId());
+        SupabaseHelper.getInstance().prefetchTransactionItems(ids);
     }
 
     private void updateDeleteUI() {
@@ -217,7 +334,7 @@ public class HistoryActivity extends AppCompatActivity {
         if (btnDelete == null || btnBack == null) return;
         if (isDeletingMode) {
             btnBack.setText("Batalkan");
-            int count = selectedTransactions.size();
+            int count = selectedIds.size();
             if (count > 0) {
                 btnDelete.setText("Hapus (" + count + ")");
             } else {
@@ -249,25 +366,44 @@ public class HistoryActivity extends AppCompatActivity {
         tvAmountPaid.setText(String.format(Locale.getDefault(), "Rp %.0f", transaction.getAmountPaid()));
         tvChange.setText(String.format(Locale.getDefault(), "Rp %.0f", transaction.getChange()));
 
-        // Tampilkan item dalam transaksi dengan memuat dari database
-        ArrayList<String> displayItems = new ArrayList<>();
-        ArrayAdapter<String> itemAdapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_list_item_1, displayItems);
-        lvItems.setAdapter(itemAdapter);
+        // Tampilkan item dalam transaksi dengan memuat dari database; teks diformat saat baris ditampilkan
+        List<TransactionItem> items = new ArrayList<>();
+        String[] statusText = {"Memuat item..."};
+        BaseAdapter itemAdapter = new BaseAdapter() {
+            @Override
+            public int getCount() { return items.isEmpty() ? 1 : items.size(); }
+
+            @Override
+            public Object getItem(int position) { return items.isEmpty() ? statusText[0] : items.get(position); }
+
+            @Override
+            public long getItemId(int position) { return position; }
 
-        // Placeholder saat memuat
-        displayItems.add("Memuat item...");
-        itemAdapter.notifyDataSetChanged();
+            @Override
+            public View getView(int position, View convertView, ViewGroup parent) {
+                if (convertView == null) {
+                    convertView = getLayoutInflater().inflate(android.R.layout.simple_list_item_1, parent, false);
+                }
+                TextView text = convertView.findViewById(android.R.id.text1);
+                if (items.isEmpty()) {
+                    text.setText(statusText[0]);
+                } else {
+                    TransactionItem item = items.get(position);
+                    String name = item.getProductName() != null ? item.getProductName() : "(unknown)";
+                    text.setText(String.format(Locale.getDefault(), "%s x%d - Rp %.0f", name, item.getQuantity(), item.getPrice()));
+                }
+                return convertView;
+            }
+        };
+        lvItems.setAdapter(itemAdapter);
 
         SupabaseHelper.getInstance().loadTransactionItems(transaction.getId(), new SupabaseHelper.ItemsCallback() {
             @Override
-            public void onSuccess(List<String> items) {
+            public void onSuccess(List<TransactionItem> loaded) {
                 runOnUiThread(() -> {
-                    displayItems.clear();
-                    displayItems.addAll(items);
-                    if (displayItems.isEmpty()) {
-                        displayItems.add("Tidak ada item");
-                    }
+                    items.clear();
+                    items.addAll(loaded);
+                    statusText[0] = "Tidak ada item";
                     itemAdapter.notifyDataSetChanged();
                 });
             }
@@ -275,8 +411,8 @@ public class HistoryActivity extends AppCompatActivity {
             @Override
             public void onError(String error) {
                 runOnUiThread(() -> {
-                    displayItems.clear();
-                    displayItems.add("Gagal memuat item: " + error);
+                    items.clear();
+                    statusText[0] = "Gagal memuat item: " + error;
                     itemAdapter.notifyDataSetChanged();
                 });
             }
@@ -301,28 +437,15 @@ public class HistoryActivity extends AppCompatActivity {
                         "Riwayat transaksi disimpan di database untuk keperluan arsip dan laporan.\n\n" +
                         "Apakah Anda yakin ingin melanjutkan?")
                 .setPositiveButton("Ya", (dialog, which) -> {
-                    // Hapus semua transaksi milik user di server
-                    SupabaseHelper.getInstance().deleteAllTransactionsForUser(new SupabaseHelper.DatabaseCallback() {
-                        @Override
-                        public void onSuccess(String id) {
-                            transactionHistory.clear();
-                            selectedTransactions.clear();
-                            isDeletingMode = false;
-                            historyAdapter.notifyDataSetChanged();
-                            setResult(RESULT_OK);
-                            updateDeleteUI();
+                    // Hapus semua transaksi milik user di server; riwayat bersama ikut dikosongkan
+                    transactionRepository.deleteAllTransactions().whenComplete((ignored, error) -> runOnUiThread(() -> {
+                        if (isDestroyed()) return;
+                        if (error != null) {
+                            showDeleteError(Futures.messageOf(error));
+                        } else {
                             finish();
                         }
-
-                        @Override
-                        public void onError(String error) {
-                            new AlertDialog.Builder(HistoryActivity.this)
-                                    .setTitle("Gagal Menghapus")
-                                    .setMessage(error)
-                                    .setPositiveButton("OK", null)
-                                    .show();
-                        }
-                    });
+                    }));
                 })
                 .setNegativeButton("Tidak", null)
                 .show();
@@ -330,36 +453,35 @@ public class HistoryActivity extends AppCompatActivity {
 
     private void deleteSelectedTransactions() {
         // Hapus transaksi terpilih di server
-        java.util.List<String> ids = new java.util.ArrayList<>();
-        for (Transaction t : selectedTransactions) ids.add(t.getId());
+        List<String> ids = new ArrayList<>(selectedIds);
 
-        SupabaseHelper.getInstance().deleteTransactionsByIds(ids, new SupabaseHelper.DatabaseCallback() {
-            @Override
-            public void onSuccess(String id) {
-                transactionHistory.removeAll(selectedTransactions);
-                selectedTransactions.clear();
-                isDeletingMode = false;
-                historyAdapter.notifyDataSetChanged();
-                setResult(RESULT_OK);
-                updateDeleteUI();
+        transactionRepository.deleteTransactions(ids).whenComplete((ignored, error) -> runOnUiThread(() -> {
+            if (isDestroyed()) return;
+            if (error != null) {
+                showDeleteError(Futures.messageOf(error));
+                return;
             }
+            // Baris yang terhapus sudah hilang lewat observer snapshot
+            selectedIds.clear();
+            isDeletingMode = false;
+            historyAdapter.notifyDataSetChanged();
+            updateDeleteUI();
+        }));
+    }
 
-            @Override
-            public void onError(String error) {
-                new AlertDialog.Builder(HistoryActivity.this)
-                        .setTitle("Gagal Menghapus")
-                        .setMessage(error)
-                        .setPositiveButton("OK", null)
-                        .show();
-            }
-        });
+    private void showDeleteError(String error) {
+        new AlertDialog.Builder(HistoryActivity.this)
+                .setTitle("Gagal Menghapus")
+                .setMessage(error)
+                .setPositiveButton("OK", null)
+                .show();
     }
 
     @Override
     public void onBackPressed() {
         if (isDeletingMode) {
             isDeletingMode = false;
-            selectedTransactions.clear();
+            selectedIds.clear();
             Button btnDelete = findViewById(R.id.btn_delete);
             btnDelete.setText("Hapus");
             Button btnBack = findViewById(R.id.btn_back);
@@ -8,6 +8,7 @@ import androidx.core.content.ContextCompat;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -21,33 +22,52 @@ import android.text.InputType;
 import android.widget.EditText;
 import android.widget.LinearLayout;
 
+import com.example.creamsyapp.image.ProductImageWarmCache;
 import com.example.creamsyapp.product.IceCreamProduct;
 import com.example.creamsyapp.R;
+import com.example.creamsyapp.supabase.CheckoutJournal;
+import com.example.creamsyapp.supabase.CheckoutSyncEngine;
+import com.example.creamsyapp.supabase.Futures;
 import com.example.creamsyapp.supabase.SupabaseHelper;
 import com.example.creamsyapp.product.Transaction;
+import com.example.creamsyapp.repository.ProductRepository;
+import com.example.creamsyapp.repository.TransactionRepository;
 import com.example.creamsyapp.adapter.ProductAdapter;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class MainActivity extends AppCompatActivity {
     private List<IceCreamProduct> products = new ArrayList<>();
     private List<IceCreamProduct> cart = new ArrayList<>();
-    private List<Transaction> transactionHistory = new ArrayList<>();
     private ArrayAdapter<CartLine> cartAdapter;
     private final List<CartLine> cartLines = new ArrayList<>();
     private TextView totalTextView;
     private double total = 0;
 
-    // Konstanta untuk request code
-    private static final int PRODUCT_MANAGEMENT_REQUEST_CODE = 3;
+    // Jumlah tile produk di depan posisi scroll yang gambarnya di-preload
+    private static final int PRODUCT_PRELOAD_AHEAD = 6;
+    // Batas waktu muat awal (produk + riwayat) sebelum dianggap gagal
+    private static final long INITIAL_LOAD_TIMEOUT_SECONDS = 20L;
 
     private SupabaseHelper supabaseHelper;
+    private AlertDialog rejectedDialog;
+    // Data bersama dengan layar manajemen produk dan riwayat
+    private ProductRepository productRepository;
+    private TransactionRepository transactionRepository;
+    // Request muat awal yang sedang berjalan; dibatalkan saat dimuat ulang atau activity dihancurkan
+    private CompletableFuture<List<IceCreamProduct>> productsRequest;
+    private CompletableFuture<Void> historyRequest;
+    // URL gambar tile dari sync terakhir; snapshot baru karena penjualan (stok) tidak memicu sync ulang
+    private Set<String> warmedImageUrls = new HashSet<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -55,6 +75,8 @@ public class MainActivity extends AppCompatActivity {
         // Inisialisasi sesi (auto-login dengan refresh token bila ada)
         supabaseHelper = SupabaseHelper.getInstance();
         supabaseHelper.init(getApplicationContext());
+        productRepository = ProductRepository.getInstance(this);
+        transactionRepository = TransactionRepository.getInstance(this);
         supabaseHelper.initializeSession(this, new SupabaseHelper.SessionInitCallback() {
             @Override
             public void onReady() { runOnUiThread(() -> setupUI()); }
@@ -104,9 +126,10 @@ public class MainActivity extends AppCompatActivity {
                 tvQty.setText(String.valueOf(qty));
 
                 btnPlus.setOnClickListener(v -> {
-                    // Add one unit if stock allows
+                    // Add one unit if stock allows (stok terbaru dari katalog, bukan salinan di keranjang)
                     int inCart = countInCart(product.getId());
-                    if (product.getStock() > inCart) {
+                    IceCreamProduct latest = findProductById(product.getId());
+                    if (latest != null && latest.getStock() > inCart) {
                         cart.add(product);
                         total += product.getPrice();
                         totalTextView.setText(String.format(Locale.getDefault(), "Total: Rp %.0f", total));
@@ -133,17 +156,43 @@ public class MainActivity extends AppCompatActivity {
         };
         cartListView.setAdapter(cartAdapter);
 
+        // Gambar tile dari disk tersedia sejak bind pertama (cold start/offline)
+        ProductImageWarmCache.getInstance(this);
+
         // Setup RecyclerView untuk produk
         RecyclerView productsRecyclerView = findViewById(R.id.products_recycler_view);
         productsRecyclerView.setLayoutManager(new LinearLayoutManager(this,
                 LinearLayoutManager.HORIZONTAL, false));
         ProductAdapter productAdapter = new ProductAdapter(products, this::addToCart);
         productsRecyclerView.setAdapter(productAdapter);
+        productsRecyclerView.addOnScrollListener(productAdapter.createPreloader(this, PRODUCT_PRELOAD_AHEAD));
+        productRepository.getProducts().observe(this, this::showProducts);
 
         // Setup tombol checkout
         Button btnCheckout = findViewById(R.id.btn_checkout);
         btnCheckout.setOnClickListener(v -> checkout());
 
+        // Kirim penjualan yang tertunda (mis. saat offline) dan pantau koneksi
+        CheckoutSyncEngine syncEngine = CheckoutSyncEngine.getInstance(this);
+        syncEngine.setListener(new CheckoutSyncEngine.SyncListener() {
+            @Override
+            public void onSaleSynced(String entryId, int remaining) {
+                if (remaining == 0) loadDataFromSupabase();
+            }
+
+            @Override
+            public void onSyncPaused(String error, int remaining) {
+                Toast.makeText(MainActivity.this, remaining + " transaksi menunggu sinkronisasi", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onSaleRejected(String entryId, String error) {
+                showRejectedSales();
+            }
+        });
+        syncEngine.start();
+        showRejectedSales();
+
         // Muat data dari Supabase
         loadDataFromSupabase();
     }
@@ -195,77 +244,92 @@ public class MainActivity extends AppCompatActivity {
     }
 
     public void loadDataFromSupabase() {
-        // Muat produk dari Supabase
-        supabaseHelper.loadProducts(new SupabaseHelper.ProductsCallback() {
-            @Override
-            public void onSuccess(List<IceCreamProduct> productsList) {
-                runOnUiThread(() -> {
-                    Log.d("MainActivity", "Products loaded: " + productsList.size());
-
-                    products.clear();
-                    products.addAll(productsList);
-
-                    // Tambahkan log untuk memeriksa produk
-                    for (IceCreamProduct product : products) {
-                        Log.d("MainActivity", "Product: " + product.getName() +
-                                ", ID: " + product.getId() +
-                                ", Price: " + product.getPrice() +
-                                ", Stock: " + product.getStock() +
-                                ", ImageResId: " + product.getImageResId());
-                    }
-
-                    // Perbarui tampilan produk
-                    RecyclerView productsRecyclerView = findViewById(R.id.products_recycler_view);
-                    if (productsRecyclerView != null) {
-                        ProductAdapter adapter = (ProductAdapter) productsRecyclerView.getAdapter();
-                        if (adapter != null) {
-                            Log.d("MainActivity", "Notifying adapter with " + products.size() + " products");
-                            adapter.notifyDataSetChanged();
-
-                            // Tampilkan pesan jika tidak ada produk
-                            if (productsList.isEmpty()) {
-                                Toast.makeText(MainActivity.this, "Tidak ada produk ditemukan",
-                                        Toast.LENGTH_SHORT).show();
-                            }
-                        } else {
-                            Log.e("MainActivity", "Adapter is null");
-                        }
-                    } else {
-                        Log.e("MainActivity", "RecyclerView is null");
-                    }
-                });
-            }
+        // Produk dan halaman pertama riwayat tidak saling bergantung: dikirim bersamaan lalu digabung.
+        // Hasilnya masuk ke repository; layar yang mengamati (termasuk layar ini) ikut diperbarui.
+        long startedAt = SystemClock.elapsedRealtime();
+        CompletableFuture<Void> productsLoad = loadProducts();
+        CompletableFuture<Void> historyLoad = loadTransactionHistory();
+        CompletableFuture.allOf(productsLoad, historyLoad).whenComplete((ignored, error) -> Log.d("MainActivity",
+                "Products + history loaded in " + (SystemClock.elapsedRealtime() - startedAt) + " ms"
+                        + (error != null ? " (" + Futures.messageOf(error) + ")" : "")));
+    }
 
-            @Override
-            public void onError(String error) {
-                runOnUiThread(() -> {
-                    Log.e("MainActivity", "Error loading products: " + error);
-                    Toast.makeText(MainActivity.this, "Gagal memuat produk: " + error,
+    private CompletableFuture<Void> loadProducts() {
+        // Muat penuh pertama kali, setelah itu cukup delta sejak sinkronisasi terakhir
+        boolean fullLoad = !productRepository.isLoaded();
+        if (productsRequest != null) productsRequest.cancel(false);
+        productsRequest = Futures.withTimeout(
+                productRepository.refresh(), INITIAL_LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return productsRequest.handle((productsList, error) -> {
+            if (Futures.isCancellation(error)) return null;
+            runOnUiThread(() -> {
+                if (error != null) {
+                    String message = Futures.messageOf(error);
+                    Log.e("MainActivity", "Error loading products: " + message);
+                    Toast.makeText(MainActivity.this, "Gagal memuat produk: " + message,
                             Toast.LENGTH_SHORT).show();
-                });
-            }
+                    return;
+                }
+                Log.d("MainActivity", "Products loaded: " + productsList.size());
+                if (fullLoad) {
+                    supabaseHelper.collectOrphanImages();
+                    // Tampilkan pesan jika tidak ada produk
+                    if (productsList.isEmpty()) {
+                        Toast.makeText(MainActivity.this, "Tidak ada produk ditemukan",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
+            return null;
         });
+    }
 
-        // Muat riwayat transaksi dari Supabase
-        supabaseHelper.loadTransactions(new SupabaseHelper.TransactionsCallback() {
-            @Override
-            public void onSuccess(List<Transaction> transactions) {
-                runOnUiThread(() -> {
-                    transactionHistory.clear();
-                    transactionHistory.addAll(transactions);
+    // Snapshot katalog dari repository: salin ke list milik adapter lalu perbarui tampilan
+    private void showProducts(List<IceCreamProduct> snapshot) {
+        products.clear();
+        products.addAll(snapshot);
+        RecyclerView productsRecyclerView = findViewById(R.id.products_recycler_view);
+        if (productsRecyclerView != null && productsRecyclerView.getAdapter() != null) {
+            productsRecyclerView.getAdapter().notifyDataSetChanged();
+        }
+        if (!snapshot.isEmpty()) warmProductImages();
+    }
 
-                    Log.d("MainActivity", "Transactions loaded: " + transactions.size());
-                });
-            }
+    // Simpan gambar tile semua produk ke disk di background (dan buang milik produk yang dihapus),
+    // hanya bila kumpulan URL gambar berubah
+    private void warmProductImages() {
+        int tilePx = Math.max(getResources().getDimensionPixelSize(R.dimen.product_tile_image_width),
+                getResources().getDimensionPixelSize(R.dimen.product_tile_image_height));
+        Set<String> urls = new HashSet<>();
+        for (IceCreamProduct product : products) {
+            String url = product.getImageUrlFor(tilePx);
+            if (url != null && !url.isEmpty()) urls.add(url);
+        }
+        if (urls.equals(warmedImageUrls)) return;
+        warmedImageUrls = urls;
+        ProductImageWarmCache.getInstance(this).sync(new ArrayList<>(products), tilePx);
+    }
 
-            @Override
-            public void onError(String error) {
-                runOnUiThread(() -> {
-                    Log.e("MainActivity", "Error loading transactions: " + error);
-                    Toast.makeText(MainActivity.this, "Gagal memuat riwayat: " + error,
-                            Toast.LENGTH_SHORT).show();
-                });
-            }
+    private CompletableFuture<Void> loadTransactionHistory() {
+        // Muat halaman pertama riwayat transaksi (halaman berikutnya dimuat di HistoryActivity),
+        // lalu langsung prefetch item transaksinya agar detail di riwayat terbuka tanpa request lagi
+        if (historyRequest != null) historyRequest.cancel(false);
+        historyRequest = Futures.withTimeout(
+                transactionRepository.refresh(), INITIAL_LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return historyRequest.thenCompose(ignored -> {
+            List<Transaction> transactions = transactionRepository.snapshot();
+            Log.d("MainActivity", "Transactions loaded: " + transactions.size());
+            List<String> ids = new ArrayList<>();
+            for (Transaction transaction : transactions) ids.add(transaction.getId());
+            return supabaseHelper.prefetchTransactionItems(ids);
+        }).whenComplete((ignored, error) -> {
+            if (error == null || Futures.isCancellation(error)) return;
+            String message = Futures.messageOf(error);
+            runOnUiThread(() -> {
+                Log.e("MainActivity", "Error loading transactions: " + message);
+                Toast.makeText(MainActivity.this, "Gagal memuat riwayat: " + message,
+                        Toast.LENGTH_SHORT).show();
+            });
         });
     }
 
@@ -363,62 +427,38 @@ public class MainActivity extends AppCompatActivity {
 
                     double change = paid - total;
 
-                    // Kurangi stok dan update ke Supabase
-                    for (Map.Entry<String, Integer> entry : productCount.entrySet()) {
-                        String productId = entry.getKey();
-                        int quantity = entry.getValue();
-                        IceCreamProduct product = findProductById(productId);
-                        if (product != null) {
-                            product.setStock(product.getStock() - quantity);
-                            supabaseHelper.updateProduct(product, new SupabaseHelper.DatabaseCallback() {
-                                @Override
-                                public void onSuccess(String id) { /* no-op */ }
-
-                                @Override
-                                public void onError(String error) {
-                                    runOnUiThread(() ->
-                                            Toast.makeText(MainActivity.this, "Gagal memperbarui stok: " + error, Toast.LENGTH_SHORT).show());
-                                }
-                            });
-                        }
+                    // Catat penjualan ke journal lokal dulu; sinkronisasi ke Supabase berjalan di belakang
+                    CheckoutJournal.Entry entry = new CheckoutJournal.Entry(
+                            UUID.randomUUID().toString(), supabaseHelper.getCurrentUserId(),
+                            total, paid, change, System.currentTimeMillis());
+                    for (Map.Entry<String, Integer> e : productCount.entrySet()) {
+                        IceCreamProduct product = findProductById(e.getKey());
+                        if (product != null) entry.addLine(product, e.getValue());
                     }
-
-                    // Simpan transaksi
-                    String transactionId = UUID.randomUUID().toString();
-                    Transaction transaction = new Transaction(
-                            transactionId,
-                            new ArrayList<>(cart),
-                            total,
-                            paid,
-                            change,
-                            new Date());
-
-                    supabaseHelper.addTransaction(transaction, new SupabaseHelper.DatabaseCallback() {
-                        @Override
-                        public void onSuccess(String id) {
-                            runOnUiThread(() ->
-                                    Toast.makeText(MainActivity.this, String.format(Locale.getDefault(), "Transaksi berhasil. Kembalian: Rp %.0f", change), Toast.LENGTH_LONG).show());
+                    // fsync journal di thread IO; tombol dinonaktifkan agar tidak tercatat dua kali
+                    btnPositive.setEnabled(false);
+                    btnNegative.setEnabled(false);
+                    CheckoutJournal.getInstance(this).appendAsync(entry).whenComplete((ignored, error) -> runOnUiThread(() -> {
+                        if (error != null) {
+                            Log.e("MainActivity", "Failed to write checkout journal", error);
+                            Toast.makeText(MainActivity.this, "Gagal menyimpan transaksi: " + Futures.messageOf(error), Toast.LENGTH_SHORT).show();
+                            btnPositive.setEnabled(true);
+                            btnNegative.setEnabled(true);
+                            return;
                         }
+                        // Stok dan riwayat disusun ulang oleh repository dari journal; semua layar ikut berubah
+                        CheckoutSyncEngine.getInstance(this).drain();
+                        Toast.makeText(MainActivity.this, String.format(Locale.getDefault(), "Transaksi berhasil. Kembalian: Rp %.0f", change), Toast.LENGTH_LONG).show();
+
+                        // Bersihkan keranjang dan perbarui UI
+                        cart.clear();
+                        total = 0;
+                        totalTextView.setText("Total: Rp 0");
+                        rebuildCartLines();
+                        cartAdapter.notifyDataSetChanged();
 
-                        @Override
-                        public void onError(String error) {
-                            runOnUiThread(() ->
-                                    Toast.makeText(MainActivity.this, "Gagal menyimpan transaksi: " + error, Toast.LENGTH_SHORT).show());
-                        }
-                    });
-
-                    // Bersihkan keranjang dan perbarui UI
-                    cart.clear();
-                    total = 0;
-                    totalTextView.setText("Total: Rp 0");
-                    rebuildCartLines();
-                    cartAdapter.notifyDataSetChanged();
-
-                    RecyclerView productsRecyclerView = findViewById(R.id.products_recycler_view);
-                    ProductAdapter adapter = (ProductAdapter) productsRecyclerView.getAdapter();
-                    if (adapter != null) adapter.notifyDataSetChanged();
-
-                    dialog.dismiss();
+                        dialog.dismiss();
+                    }));
                 });
             });
             dialog.show();
@@ -428,6 +468,31 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // Penjualan yang ditolak server tidak dikirim ulang otomatis; kasir memilih kirim ulang atau buang
+    private void showRejectedSales() {
+        CheckoutSyncEngine syncEngine = CheckoutSyncEngine.getInstance(this);
+        List<CheckoutJournal.Entry> rejected = syncEngine.rejectedSales();
+        if (rejected.isEmpty() || isFinishing()) return;
+        if (rejectedDialog != null && rejectedDialog.isShowing()) rejectedDialog.dismiss();
+
+        StringBuilder message = new StringBuilder();
+        for (CheckoutJournal.Entry entry : rejected) {
+            message.append(String.format(Locale.getDefault(), "• Rp %.0f: %s%n", entry.getTotal(), entry.getError()));
+        }
+        rejectedDialog = new AlertDialog.Builder(this)
+                .setTitle(rejected.size() + " transaksi ditolak server")
+                .setMessage(message.toString().trim())
+                .setPositiveButton("Kirim ulang", (d, w) -> {
+                    for (CheckoutJournal.Entry entry : rejected) syncEngine.retryRejected(entry.getId());
+                })
+                .setNegativeButton("Buang", (d, w) -> {
+                    for (CheckoutJournal.Entry entry : rejected) syncEngine.discardRejected(entry.getId());
+                })
+                .setNeutralButton("Nanti", null)
+                .create();
+        rejectedDialog.show();
+    }
+
     private IceCreamProduct findProductById(String id) {
         for (IceCreamProduct product : products) {
             if (product.getId().equals(id)) {
@@ -437,6 +502,22 @@ public class MainActivity extends AppCompatActivity {
         return null;
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Jangan biarkan delta stok tertahan saat aplikasi ke background
+        supabaseHelper.getStockWriteBehind().flush(null);
+    }
+
+    @Override
+    protected void onDestroy() {
+        CheckoutSyncEngine.getInstance(this).setListener(null);
+        if (rejectedDialog != null) rejectedDialog.dismiss();
+        if (productsRequest != null) productsRequest.cancel(false);
+        if (historyRequest != null) historyRequest.cancel(false);
+        super.onDestroy();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_main, menu);
@@ -448,23 +529,27 @@ public class MainActivity extends AppCompatActivity {
         int id = item.getItemId();
 
         if (id == R.id.action_product_management) {
-            Intent intent = new Intent(MainActivity.this, ProductManagementActivity.class);
-            intent.putParcelableArrayListExtra("products", new ArrayList<>(products));
-            startActivityForResult(intent, PRODUCT_MANAGEMENT_REQUEST_CODE);
+            // Layar manajemen membaca katalog dari ProductRepository; tidak ada data di Intent
+            startActivity(new Intent(MainActivity.this, ProductManagementActivity.class));
             return true;
         }
         else if (id == R.id.action_history) {
-            Intent intent = new Intent(MainActivity.this, HistoryActivity.class);
-            intent.putParcelableArrayListExtra("transactions",
-                    new ArrayList<>(transactionHistory));
-            startActivityForResult(intent, 1);
+            startActivity(new Intent(MainActivity.this, HistoryActivity.class));
             return true;
         }
         else if (id == R.id.action_logout) {
+            // Penjualan yang belum terkirim tetap di journal dan dikirim saat user ini login lagi
+            int unsynced = CheckoutSyncEngine.getInstance(this).pendingCount();
+            if (unsynced > 0) {
+                Toast.makeText(this, unsynced + " transaksi akan disinkronkan saat Anda login kembali",
+                        Toast.LENGTH_LONG).show();
+            }
             supabaseHelper.signOut(new SupabaseHelper.AuthCallback() {
                 @Override
                 public void onSuccess() {
                     runOnUiThread(() -> {
+                        productRepository.clear();
+                        transactionRepository.clear();
                         Intent intent = new Intent(MainActivity.this, AuthActivity.class);
                         intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
                         startActivity(intent);
@@ -485,21 +570,4 @@ public class MainActivity extends AppCompatActivity {
 
         return super.onOptionsItemSelected(item);
     }
-
-    @Override
-    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
-        super.onActivityResult(requestCode, resultCode, data);
-
-        if (requestCode == PRODUCT_MANAGEMENT_REQUEST_CODE && resultCode == RESULT_OK) {
-            // MUAT ULANG DATA DI SINI
-            loadDataFromSupabase();
-
-            Toast.makeText(this, "Daftar produk berhasil diperbarui",
-                    Toast.LENGTH_SHORT).show();
-        }
-        else if (requestCode == 1 && resultCode == RESULT_OK) {
-            // Riwayat transaksi telah dihapus, perbarui data
-            loadDataFromSupabase();
-        }
-    }
-}
\ No newline at end of file
+}
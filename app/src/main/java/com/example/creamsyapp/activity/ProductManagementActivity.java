@@ -14,6 +14,7 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.creamsyapp.product.IceCreamProduct;
 import com.example.creamsyapp.R;
+import com.example.creamsyapp.repository.ProductRepository;
 import com.example.creamsyapp.supabase.SupabaseHelper;
 import com.example.creamsyapp.adapter.ProductManagementAdapter;
 
@@ -21,11 +22,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class ProductManagementActivity extends AppCompatActivity {
-    private List<IceCreamProduct> products;
+    private final List<IceCreamProduct> products = new ArrayList<>();
     private ProductManagementAdapter productAdapter;
     private boolean isDeletingMode = false;
     private List<IceCreamProduct> selectedProducts = new ArrayList<>();
-    private SupabaseHelper supabaseHelper;
+    private ProductRepository productRepository;
 
     // Konstanta untuk request code
     public static final int PRODUCT_ADDED_REQUEST_CODE = 1001;
@@ -37,20 +38,22 @@ public class ProductManagementActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_product_management);
 
-        // Inisialisasi SupabaseHelper
-        supabaseHelper = SupabaseHelper.getInstance();
-
-        // Ambil daftar produk dari intent
-        products = getIntent().getParcelableArrayListExtra("products");
-        if (products == null) {
-            products = new ArrayList<>();
-        }
+        productRepository = ProductRepository.getInstance(this);
 
         // Setup ListView untuk daftar produk
         ListView productsListView = findViewById(R.id.products_list_view);
         productAdapter = new ProductManagementAdapter(this, products);
         productsListView.setAdapter(productAdapter);
 
+        // Daftar produk diambil dari katalog bersama dan ikut berubah saat produk ditambah/diedit/dihapus
+        productRepository.getProducts().observe(this, snapshot -> {
+            products.clear();
+            products.addAll(snapshot);
+            selectedProducts.retainAll(snapshot);
+            productAdapter.notifyDataSetChanged();
+        });
+        if (!productRepository.isLoaded()) productRepository.refresh();
+
         // Setup klik item
         productsListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
@@ -69,9 +72,9 @@ public class ProductManagementActivity extends AppCompatActivity {
                     IceCreamProduct product = products.get(position);
                     Intent intent = new Intent(ProductManagementActivity.this, AddProductActivity.class);
 
-                    // Jika ini mode edit, kirim data produk yang akan diedit
-                    intent.putExtra("edit_product", product);
-                    startActivityForResult(intent, 1);
+                    // Jika ini mode edit, kirim id produk yang akan diedit
+                    intent.putExtra(AddProductActivity.EXTRA_PRODUCT_ID, product.getId());
+                    startActivity(intent);
                 }
             }
         });
@@ -89,10 +92,7 @@ public class ProductManagementActivity extends AppCompatActivity {
 
         if (id == R.id.action_done) {
             if (isDeletingMode) {
-                isDeletingMode = false;
-                selectedProducts.clear();
-                productAdapter.setDeletingMode(false);
-                productAdapter.notifyDataSetChanged();
+                exitDeletingMode();
                 return true;
             } else {
                 // Selesai dari layar manajemen produk
@@ -101,8 +101,7 @@ public class ProductManagementActivity extends AppCompatActivity {
             }
         }
         else if (id == R.id.action_add) {
-            Intent intent = new Intent(this, AddProductActivity.class);
-            startActivityForResult(intent, 1);
+            startActivity(new Intent(this, AddProductActivity.class));
             return true;
         }
         else if (id == R.id.action_delete_selected) {
@@ -125,112 +124,43 @@ public class ProductManagementActivity extends AppCompatActivity {
                 .setTitle("Konfirmasi Hapus")
                 .setMessage("Apakah Anda yakin ingin menghapus " + selectedProducts.size() + " produk terpilih?")
                 .setPositiveButton("Ya", (dialog, which) -> {
-                    for (IceCreamProduct product : selectedProducts) {
-                        // Hapus dari Supabase
-                        supabaseHelper.deleteProduct(product.getId(), new SupabaseHelper.DatabaseCallback() {
-                            @Override
-                            public void onSuccess(String id) {
-                                runOnUiThread(() -> {
-                                    Toast.makeText(ProductManagementActivity.this,
-                                            "Produk berhasil dihapus", Toast.LENGTH_SHORT).show();
-                                });
-                            }
-
-                            @Override
-                            public void onError(String error) {
-                                runOnUiThread(() -> {
-                                    Toast.makeText(ProductManagementActivity.this,
-                                            "Gagal menghapus produk: " + error, Toast.LENGTH_SHORT).show();
-                                });
-                            }
-                        });
-                    }
-
-                    // Beri tahu MainActivity untuk memperbarui daftar produk
-                    Intent resultIntent = new Intent();
-                    resultIntent.putExtra("product_deleted", true);
-                    setResult(RESULT_OK, resultIntent);
-                    finish();
+                    List<String> ids = new ArrayList<>();
+                    for (IceCreamProduct product : selectedProducts) ids.add(product.getId());
+
+                    // Satu request untuk semua produk terpilih; produk yang terhapus hilang dari katalog bersama
+                    // (layar ini dan MainActivity) setelah server selesai
+                    productRepository.deleteProducts(ids, new SupabaseHelper.BulkDeleteCallback() {
+                        @Override
+                        public void onSuccess(List<String> removedIds) {
+                            runOnUiThread(() -> {
+                                Toast.makeText(ProductManagementActivity.this,
+                                        removedIds.size() + " produk berhasil dihapus", Toast.LENGTH_SHORT).show();
+                                exitDeletingMode();
+                            });
+                        }
+
+                        @Override
+                        public void onError(String error, List<String> removedIds) {
+                            runOnUiThread(() -> Toast.makeText(ProductManagementActivity.this,
+                                    "Gagal menghapus produk: " + error, Toast.LENGTH_SHORT).show());
+                        }
+                    });
                 })
                 .setNegativeButton("Tidak", null)
                 .show();
     }
 
-    @Override
-    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
-        super.onActivityResult(requestCode, resultCode, data);
-
-        if (requestCode == 1 && resultCode == RESULT_OK) {
-            if (data != null) {
-                if (data.hasExtra("new_product")) {
-                    // Tambah produk baru
-                    IceCreamProduct newProduct = data.getParcelableExtra("new_product");
-                    if (newProduct != null) {
-                        // Simpan ke Supabase
-                        supabaseHelper.addProduct(newProduct, new SupabaseHelper.DatabaseCallback() {
-                            @Override
-                            public void onSuccess(String id) {
-                                runOnUiThread(() -> {
-                                    Toast.makeText(ProductManagementActivity.this, "Produk berhasil ditambahkan", Toast.LENGTH_SHORT).show();
-
-                                    // Beri tahu MainActivity untuk memperbarui daftar produk
-                                    Intent resultIntent = new Intent();
-                                    resultIntent.putExtra("product_added", true);
-                                    setResult(RESULT_OK, resultIntent);
-                                    finish();
-                                });
-                            }
-
-                            @Override
-                            public void onError(String error) {
-                                runOnUiThread(() -> {
-                                    Toast.makeText(ProductManagementActivity.this, "Gagal menambahkan produk: " + error,
-                                            Toast.LENGTH_SHORT).show();
-                                });
-                            }
-                        });
-                    }
-                }
-                else if (data.hasExtra("edit_product")) {
-                    // Update produk yang diedit
-                    IceCreamProduct editedProduct = data.getParcelableExtra("edit_product");
-                    if (editedProduct != null) {
-                        // Update di Supabase
-                        supabaseHelper.updateProduct(editedProduct, new SupabaseHelper.DatabaseCallback() {
-                            @Override
-                            public void onSuccess(String id) {
-                                runOnUiThread(() -> {
-                                    Toast.makeText(ProductManagementActivity.this, "Produk berhasil diperbarui", Toast.LENGTH_SHORT).show();
-
-                                    // Beri tahu MainActivity untuk memperbarui daftar produk
-                                    Intent resultIntent = new Intent();
-                                    resultIntent.putExtra("product_updated", true);
-                                    setResult(RESULT_OK, resultIntent);
-                                    finish();
-                                });
-                            }
-
-                            @Override
-                            public void onError(String error) {
-                                runOnUiThread(() -> {
-                                    Toast.makeText(ProductManagementActivity.this, "Gagal memperbarui produk: " + error,
-                                            Toast.LENGTH_SHORT).show();
-                                });
-                            }
-                        });
-                    }
-                }
-            }
-        }
+    private void exitDeletingMode() {
+        isDeletingMode = false;
+        selectedProducts.clear();
+        productAdapter.setDeletingMode(false);
+        productAdapter.notifyDataSetChanged();
     }
 
     @Override
     public void onBackPressed() {
         if (isDeletingMode) {
-            isDeletingMode = false;
-            selectedProducts.clear();
-            productAdapter.setDeletingMode(false);
-            productAdapter.notifyDataSetChanged();
+            exitDeletingMode();
         } else {
             super.onBackPressed();
         }
@@ -1,5 +1,6 @@
 package com.example.creamsyapp.adapter;
 
+import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,18 +9,30 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.Collections;
 import java.util.List;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+import com.example.creamsyapp.image.ProductImages;
 import com.example.creamsyapp.product.IceCreamProduct;
 import com.example.creamsyapp.R;
 
-public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder> {
+public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder>
+        implements ListPreloader.PreloadModelProvider<String> {
 
     private List<IceCreamProduct> products;
     private OnProductAddListener listener;
+    private RequestManager preloadGlide;
+    private int preloadWidth;
+    private int preloadHeight;
 
     public interface OnProductAddListener {
         void onAddProduct(IceCreamProduct product);
@@ -49,12 +62,12 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
             holder.tvStock.setText(String.format("Stok: %d", product.getStock()));
 
             // Load image from URL if available, else fallback to resource/default
-            String url = product.getImageUrl();
+            Context context = holder.itemView.getContext();
+            int width = imageWidth(context);
+            int height = imageHeight(context);
+            String url = ProductImages.urlFor(product, width, height);
             if (url != null && !url.isEmpty()) {
-                Glide.with(holder.itemView.getContext())
-                        .load(url)
-                        .placeholder(R.drawable.ic_default_product)
-                        .error(R.drawable.ic_default_product)
+                ProductImages.request(Glide.with(context), url, width, height)
                         .into(holder.ivProduct);
             } else {
                 try {
@@ -87,6 +100,39 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
         return products != null ? products.size() : 0;
     }
 
+    // Untuk RecyclerViewPreloader: gambar tile berikutnya diambil sebelum tile-nya terlihat
+    @NonNull
+    @Override
+    public List<String> getPreloadItems(int position) {
+        IceCreamProduct product = products != null && position < products.size() ? products.get(position) : null;
+        String url = product != null ? ProductImages.urlFor(product, preloadWidth, preloadHeight) : null;
+        if (url == null || url.isEmpty()) return Collections.emptyList();
+        return Collections.singletonList(url);
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull String url) {
+        return ProductImages.request(preloadGlide, url, preloadWidth, preloadHeight);
+    }
+
+    // Dipanggil sekali saat adapter dipasang; ukuran preload harus sama dengan ukuran saat bind
+    public RecyclerViewPreloader<String> createPreloader(Context context, int maxPreload) {
+        preloadGlide = Glide.with(context);
+        preloadWidth = imageWidth(context);
+        preloadHeight = imageHeight(context);
+        return new RecyclerViewPreloader<>(preloadGlide, this,
+                new FixedPreloadSizeProvider<>(preloadWidth, preloadHeight), maxPreload);
+    }
+
+    private static int imageWidth(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.product_tile_image_width);
+    }
+
+    private static int imageHeight(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.product_tile_image_height);
+    }
+
     static class ProductViewHolder extends RecyclerView.ViewHolder {
         TextView tvName, tvPrice, tvStock;
         Button btnAdd;
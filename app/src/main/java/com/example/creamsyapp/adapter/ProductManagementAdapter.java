@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.bumptech.glide.Glide;
+import com.example.creamsyapp.image.ProductImages;
 import com.example.creamsyapp.product.IceCreamProduct;
 import com.example.creamsyapp.R;
 
@@ -47,13 +48,10 @@ public class ProductManagementAdapter extends ArrayAdapter<IceCreamProduct> {
         tvPrice.setText(String.format("Rp %.0f", product.getPrice()));
         tvStock.setText(String.format("Stok: %d", product.getStock()));
 
-        String url = product.getImageUrl();
+        int size = context.getResources().getDimensionPixelSize(R.dimen.product_thumb_size);
+        String url = ProductImages.urlFor(product, size, size);
         if (url != null && !url.isEmpty()) {
-            Glide.with(context)
-                    .load(url)
-                    .placeholder(R.drawable.ic_default_product)
-                    .error(R.drawable.ic_default_product)
-                    .into(ivProduct);
+            ProductImages.request(Glide.with(context), url, size, size).into(ivProduct);
         } else {
             try {
                 if (product.getImageResId() > 0) {
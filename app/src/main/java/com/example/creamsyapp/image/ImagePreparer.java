@@ -0,0 +1,191 @@
+package com.example.creamsyapp.image;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Menyiapkan gambar dari galeri untuk diupload tanpa memuat resolusi penuh ke memori:
+// baca ukuran dulu (inJustDecodeBounds), decode dengan inSampleSize mendekati dimensi target,
+// lalu encode ulang ke JPEG sampai muat dalam anggaran byte, plus varian thumbnail kecil.
+// Semua berjalan di executor background.
+public class ImagePreparer {
+    public static final int DEFAULT_MAX_DIMENSION = 1024;
+    public static final int DEFAULT_BYTE_BUDGET = 200 * 1024;
+    private static final int START_QUALITY = 85;
+    private static final int MIN_QUALITY = 50;
+    private static final int QUALITY_STEP = 10;
+    private static final float SHRINK_FACTOR = 0.75f;
+    private static final int MIN_DIMENSION = 256;
+    // Varian thumbnail (sisi terpanjang, px) yang diupload bersama gambar asli
+    public static final int[] VARIANT_SIZES = {128, 256, 512};
+    private static final int VARIANT_QUALITY = 80;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    public interface Callback {
+        void onPrepared(PreparedImage image);
+        void onError(String error);
+    }
+
+    public static class PreparedImage {
+        private final byte[] bytes;
+        private final Bitmap bitmap;
+        private final Map<Integer, byte[]> variants;
+
+        PreparedImage(byte[] bytes, Bitmap bitmap, Map<Integer, byte[]> variants) {
+            this.bytes = bytes;
+            this.bitmap = bitmap;
+            this.variants = variants;
+        }
+
+        // JPEG siap upload
+        public byte[] getBytes() { return bytes; }
+        // Bitmap hasil resize (untuk preview)
+        public Bitmap getBitmap() { return bitmap; }
+        // Varian thumbnail JPEG per ukuran; hanya ukuran yang lebih kecil dari gambar asli
+        public Map<Integer, byte[]> getVariants() { return variants; }
+    }
+
+    // Handle untuk membatalkan persiapan yang belum selesai; callback tidak dipanggil setelah cancel()
+    public static class Task {
+        private volatile boolean cancelled;
+        private Future<?> future;
+
+        public void cancel() {
+            cancelled = true;
+            if (future != null) future.cancel(true);
+        }
+
+        boolean isCancelled() {
+            return cancelled || Thread.currentThread().isInterrupted();
+        }
+    }
+
+    private final ContentResolver resolver;
+    private final int maxDimension;
+    private final int byteBudget;
+
+    public ImagePreparer(ContentResolver resolver) {
+        this(resolver, DEFAULT_MAX_DIMENSION, DEFAULT_BYTE_BUDGET);
+    }
+
+    public ImagePreparer(ContentResolver resolver, int maxDimension, int byteBudget) {
+        this.resolver = resolver;
+        this.maxDimension = maxDimension;
+        this.byteBudget = byteBudget;
+    }
+
+    public Task prepare(Uri uri, Callback callback) {
+        Task task = new Task();
+        task.future = EXECUTOR.submit(() -> {
+            try {
+                PreparedImage encoded = decodeAndEncode(uri, task);
+                if (encoded == null) return;
+                Map<Integer, byte[]> variants = encodeVariants(encoded.getBitmap(), task);
+                if (variants == null) return;
+                PreparedImage image = new PreparedImage(encoded.getBytes(), encoded.getBitmap(), variants);
+                MAIN.post(() -> {
+                    if (!task.cancelled) callback.onPrepared(image);
+                });
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                if (task.isCancelled()) return;
+                String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                MAIN.post(() -> {
+                    if (!task.cancelled) callback.onError(message);
+                });
+            }
+        });
+        return task;
+    }
+
+    // null bila dibatalkan di tengah jalan
+    private PreparedImage decodeAndEncode(Uri uri, Task task) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new IOException("Cannot open image");
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) throw new IOException("Unsupported image");
+        if (task.isCancelled()) return null;
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, maxDimension);
+        Bitmap sampled;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new IOException("Cannot open image");
+            sampled = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (sampled == null) throw new IOException("Failed to decode image");
+        if (task.isCancelled()) return null;
+
+        Bitmap bitmap = scaleToFit(sampled, maxDimension);
+        while (true) {
+            byte[] encoded = null;
+            for (int quality = START_QUALITY; quality >= MIN_QUALITY; quality -= QUALITY_STEP) {
+                if (task.isCancelled()) return null;
+                encoded = encode(bitmap, quality);
+                if (encoded.length <= byteBudget) return new PreparedImage(encoded, bitmap, null);
+            }
+            // Kualitas minimum masih melebihi anggaran: perkecil dimensi lalu coba lagi
+            int longest = Math.max(bitmap.getWidth(), bitmap.getHeight());
+            if (longest <= MIN_DIMENSION) return new PreparedImage(encoded, bitmap, null);
+            bitmap = scaleToFit(bitmap, (int) (longest * SHRINK_FACTOR));
+        }
+    }
+
+    // null bila dibatalkan; bitmap sumber tidak diubah
+    private static Map<Integer, byte[]> encodeVariants(Bitmap source, Task task) {
+        Map<Integer, byte[]> variants = new LinkedHashMap<>();
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        for (int size : VARIANT_SIZES) {
+            if (size >= longest) break;
+            if (task.isCancelled()) return null;
+            float scale = (float) size / longest;
+            Bitmap scaled = Bitmap.createScaledBitmap(source,
+                    Math.max(1, Math.round(source.getWidth() * scale)),
+                    Math.max(1, Math.round(source.getHeight() * scale)), true);
+            variants.put(size, encode(scaled, VARIANT_QUALITY));
+            if (scaled != source) scaled.recycle();
+        }
+        return variants;
+    }
+
+    private static byte[] encode(Bitmap bitmap, int quality) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, quality, out);
+        return out.toByteArray();
+    }
+
+    // Pangkat dua terbesar yang tetap menyisakan sisi terpanjang >= maxDimension
+    static int sampleSize(int width, int height, int maxDimension) {
+        int longest = Math.max(width, height);
+        int sample = 1;
+        while (longest / (sample * 2) >= maxDimension) sample *= 2;
+        return sample;
+    }
+
+    private static Bitmap scaleToFit(Bitmap source, int maxDimension) {
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        if (longest <= maxDimension) return source;
+        float scale = (float) maxDimension / longest;
+        int width = Math.max(1, Math.round(source.getWidth() * scale));
+        int height = Math.max(1, Math.round(source.getHeight() * scale));
+        Bitmap scaled = Bitmap.createScaledBitmap(source, width, height, true);
+        if (scaled != source) source.recycle();
+        return scaled;
+    }
+}
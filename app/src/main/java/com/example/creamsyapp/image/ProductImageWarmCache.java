@@ -0,0 +1,149 @@
+package com.example.creamsyapp.image;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.creamsyapp.product.IceCreamProduct;
+import com.example.creamsyapp.supabase.HttpClientProvider;
+import com.example.creamsyapp.supabase.SupabaseHelper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Salinan lokal gambar tile produk di filesDir agar layar POS tetap lengkap saat cold start tanpa
+// internet. Diisi di background setiap katalog selesai dimuat; gambar produk yang sudah dihapus
+// (atau gambarnya diganti) ikut dibuang, dan total ukuran dibatasi MAX_BYTES.
+public class ProductImageWarmCache {
+    private static final String TAG = "ProductImageWarmCache";
+    private static final String DIR_NAME = "product_images";
+    private static final long MAX_BYTES = 50L * 1024 * 1024;
+
+    private static ProductImageWarmCache instance;
+
+    private final File dir;
+    // Nama file (sha256 URL) yang sudah lengkap di disk
+    private final Set<String> present = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Sinkronisasi yang lebih baru membatalkan yang sedang berjalan
+    private final AtomicLong generation = new AtomicLong();
+
+    private ProductImageWarmCache(Context context) {
+        dir = new File(context.getFilesDir(), DIR_NAME);
+        if (!dir.exists() && !dir.mkdirs()) Log.w(TAG, "Cannot create " + dir);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(".tmp")) {
+                    file.delete();
+                } else {
+                    present.add(file.getName());
+                }
+            }
+        }
+    }
+
+    public static synchronized ProductImageWarmCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ProductImageWarmCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // File lokal untuk URL bila sudah tersimpan; null bila belum (atau cache belum diinisialisasi)
+    public static File localFile(String url) {
+        ProductImageWarmCache cache;
+        synchronized (ProductImageWarmCache.class) {
+            cache = instance;
+        }
+        if (cache == null || url == null) return null;
+        String name = fileName(url);
+        return cache.present.contains(name) ? new File(cache.dir, name) : null;
+    }
+
+    // Samakan isi cache dengan katalog: unduh varian seukuran targetPx untuk produk aktif, buang sisanya
+    public void sync(List<IceCreamProduct> products, int targetPx) {
+        Map<String, String> wanted = new LinkedHashMap<>();
+        for (IceCreamProduct product : products) {
+            if (product == null || product.isDeleted()) continue;
+            String url = product.getImageUrlFor(targetPx);
+            if (url != null && !url.isEmpty()) wanted.put(fileName(url), url);
+        }
+        long token = generation.incrementAndGet();
+        executor.execute(() -> run(wanted, token));
+    }
+
+    private void run(Map<String, String> wanted, long token) {
+        long total = 0L;
+        for (String name : new ArrayList<>(present)) {
+            File file = new File(dir, name);
+            if (wanted.containsKey(name)) {
+                total += file.length();
+            } else {
+                present.remove(name);
+                file.delete();
+            }
+        }
+
+        int downloaded = 0;
+        for (Map.Entry<String, String> entry : wanted.entrySet()) {
+            if (generation.get() != token) return;
+            if (present.contains(entry.getKey())) continue;
+            if (total >= MAX_BYTES) {
+                Log.w(TAG, "Warm cache full, skipping remaining images");
+                break;
+            }
+            try {
+                total += download(entry.getValue(), entry.getKey());
+                present.add(entry.getKey());
+                downloaded++;
+            } catch (IOException e) {
+                // Offline atau object hilang: coba lagi pada sinkronisasi berikutnya
+                Log.d(TAG, "Prefetch failed for " + entry.getValue() + ": " + e.getMessage());
+            }
+        }
+        Log.d(TAG, "Warm cache: " + present.size() + " images, " + downloaded + " downloaded, " + total + " bytes");
+    }
+
+    // Tulis ke .tmp lalu rename agar file setengah jadi tidak pernah terbaca
+    private long download(String url, String name) throws IOException {
+        Request request = new Request.Builder().url(url).build();
+        File tmp = new File(dir, name + ".tmp");
+        try (Response response = HttpClientProvider.get().newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("HTTP " + response.code());
+            }
+            try (InputStream in = response.body().byteStream();
+                 OutputStream out = new FileOutputStream(tmp)) {
+                byte[] buffer = new byte[16 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+            }
+        }
+        File target = new File(dir, name);
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("Cannot store " + name);
+        }
+        return target.length();
+    }
+
+    private static String fileName(String url) {
+        return SupabaseHelper.sha256Hex(url.getBytes(StandardCharsets.UTF_8));
+    }
+}
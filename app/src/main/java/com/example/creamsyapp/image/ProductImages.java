@@ -0,0 +1,33 @@
+package com.example.creamsyapp.image;
+
+import android.graphics.drawable.Drawable;
+
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.example.creamsyapp.R;
+import com.example.creamsyapp.product.IceCreamProduct;
+
+import java.io.File;
+
+// Satu-satunya tempat request gambar produk dibentuk. Adapter dan preloader wajib memakai builder
+// yang sama (ukuran override identik) agar hasil preload terkena cache saat tile di-bind.
+public final class ProductImages {
+    private ProductImages() {}
+
+    // Varian yang paling mendekati ukuran view (lihat IceCreamProduct.getImageUrlFor)
+    public static String urlFor(IceCreamProduct product, int widthPx, int heightPx) {
+        return product.getImageUrlFor(Math.max(widthPx, heightPx));
+    }
+
+    // Decode seukuran view (bukan resolusi penuh object Storage). Salinan lokal dari warm cache
+    // didahulukan agar tile tetap tampil saat offline.
+    public static RequestBuilder<Drawable> request(RequestManager glide, String url, int widthPx, int heightPx) {
+        File local = ProductImageWarmCache.localFile(url);
+        RequestBuilder<Drawable> builder = local != null ? glide.load(local) : glide.load(url);
+        return builder
+                .override(widthPx, heightPx)
+                .centerCrop()
+                .placeholder(R.drawable.ic_default_product)
+                .error(R.drawable.ic_default_product);
+    }
+}
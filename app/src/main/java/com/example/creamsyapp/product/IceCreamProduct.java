@@ -10,6 +10,8 @@ import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 public class IceCreamProduct implements Parcelable {
     @SerializedName("id")
@@ -34,6 +36,17 @@ public class IceCreamProduct implements Parcelable {
     @SerializedName("image_url")
     private String imageUrl; // optional URL when using Supabase Storage
 
+    // Varian thumbnail: sisi terpanjang (px, sebagai string) -> URL, mis. {"128": ..., "256": ..., "512": ...}
+    @SerializedName("image_sizes")
+    private Map<String, String> imageSizes;
+
+    // Kolom sinkronisasi delta: waktu perubahan terakhir (server) dan tombstone soft-delete
+    @SerializedName("updated_at")
+    private String updatedAt;
+
+    @SerializedName("deleted_at")
+    private String deletedAt;
+
     public IceCreamProduct(String id, String name, double price, int stock, int imageResId) {
         this.id = id;
         this.name = name;
@@ -47,6 +60,14 @@ public class IceCreamProduct implements Parcelable {
         this.imageUrl = imageUrl;
     }
 
+    // Salinan independen (mis. agar cache tidak ikut berubah saat stok dikurangi di UI)
+    public IceCreamProduct(IceCreamProduct other) {
+        this(other.id, other.name, other.price, other.stock, other.imageResId, other.imageUrl);
+        this.imageSizes = other.imageSizes != null ? new HashMap<>(other.imageSizes) : null;
+        this.updatedAt = other.updatedAt;
+        this.deletedAt = other.deletedAt;
+    }
+
     // Constructor default untuk Gson
     public IceCreamProduct() {
     }
@@ -58,6 +79,13 @@ public class IceCreamProduct implements Parcelable {
         stock = in.readInt();
         imageResId = in.readInt();
         imageUrl = in.readString();
+        updatedAt = in.readString();
+        deletedAt = in.readString();
+        int sizeCount = in.readInt();
+        if (sizeCount >= 0) {
+            imageSizes = new HashMap<>();
+            for (int i = 0; i < sizeCount; i++) imageSizes.put(in.readString(), in.readString());
+        }
     }
 
     public static final Creator<IceCreamProduct> CREATOR = new Creator<IceCreamProduct>() {
@@ -91,6 +119,33 @@ public class IceCreamProduct implements Parcelable {
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
 
+    public Map<String, String> getImageSizes() { return imageSizes; }
+    public void setImageSizes(Map<String, String> imageSizes) { this.imageSizes = imageSizes; }
+
+    // URL varian terkecil yang sisi terpanjangnya >= targetPx; bila tidak ada yang cukup besar
+    // (atau belum punya varian) pakai gambar asli
+    public String getImageUrlFor(int targetPx) {
+        if (imageSizes == null || imageSizes.isEmpty()) return imageUrl;
+        String best = null;
+        int bestSize = Integer.MAX_VALUE;
+        for (Map.Entry<String, String> entry : imageSizes.entrySet()) {
+            int size;
+            try {
+                size = Integer.parseInt(entry.getKey());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (size >= targetPx && size < bestSize && entry.getValue() != null) {
+                best = entry.getValue();
+                bestSize = size;
+            }
+        }
+        return best != null ? best : imageUrl;
+    }
+
+    public String getUpdatedAt() { return updatedAt; }
+    public boolean isDeleted() { return deletedAt != null; }
+
     @Override
     public int describeContents() {
         return 0;
@@ -104,6 +159,17 @@ public class IceCreamProduct implements Parcelable {
         dest.writeInt(stock);
         dest.writeInt(imageResId);
         dest.writeString(imageUrl);
+        dest.writeString(updatedAt);
+        dest.writeString(deletedAt);
+        if (imageSizes == null) {
+            dest.writeInt(-1);
+        } else {
+            dest.writeInt(imageSizes.size());
+            for (Map.Entry<String, String> entry : imageSizes.entrySet()) {
+                dest.writeString(entry.getKey());
+                dest.writeString(entry.getValue());
+            }
+        }
     }
 
     // Adapter untuk parsing double dari JSON
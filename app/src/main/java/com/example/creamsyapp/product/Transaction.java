@@ -31,6 +31,14 @@ public class Transaction implements Parcelable {
     @SerializedName("timestamp")
     private Date timestamp;
 
+    // Timestamp mentah dari server (presisi mikrodetik, alias ts_cursor:timestamp) untuk paginasi keyset
+    @SerializedName("ts_cursor")
+    private String timestampCursor;
+
+    // Baris transaction_items hasil resource embedding (select=...,transaction_items(...)); tidak ikut di-parcel
+    @SerializedName("transaction_items")
+    private List<TransactionItem> lineItems;
+
     public Transaction(String id, List<IceCreamProduct> items, double total, double amountPaid, double change, Date timestamp) {
         this.id = id;
         this.items = items;
@@ -69,6 +77,10 @@ public class Transaction implements Parcelable {
     public double getAmountPaid() { return amountPaid; }
     public double getChange() { return change; }
     public Date getTimestamp() { return timestamp; }
+    public String getTimestampCursor() { return timestampCursor; }
+    public List<TransactionItem> getLineItems() { return lineItems; }
+
+    public void setItems(List<IceCreamProduct> items) { this.items = items; }
 
     public String getFormattedDate() {
         SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
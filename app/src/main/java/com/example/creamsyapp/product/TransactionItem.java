@@ -0,0 +1,146 @@
+package com.example.creamsyapp.product;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+// Satu baris transaction_items beserta produk yang di-embed (product:products(id,name)).
+// Diparse langsung dari stream JSON oleh Adapter tanpa Map perantara per baris.
+@JsonAdapter(TransactionItem.Adapter.class)
+public class TransactionItem {
+    private String id;
+    private String transactionId;
+    private int quantity;
+    // Harga satuan saat transaksi
+    private double price;
+    private String productId;
+    private String productName;
+
+    public TransactionItem(String id, String transactionId, int quantity, double price, String productId, String productName) {
+        this.id = id;
+        this.transactionId = transactionId;
+        this.quantity = quantity;
+        this.price = price;
+        this.productId = productId;
+        this.productName = productName;
+    }
+
+    public String getId() { return id; }
+    public String getTransactionId() { return transactionId; }
+    public int getQuantity() { return quantity; }
+    public double getPrice() { return price; }
+    public String getProductId() { return productId; }
+    public String getProductName() { return productName; }
+
+    public static class Adapter extends TypeAdapter<TransactionItem> {
+        @Override
+        public void write(JsonWriter out, TransactionItem value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(value.id);
+            out.name("transaction_id").value(value.transactionId);
+            out.name("quantity").value(value.quantity);
+            out.name("price").value(value.price);
+            out.name("product").beginObject();
+            out.name("id").value(value.productId);
+            out.name("name").value(value.productName);
+            out.endObject();
+            out.endObject();
+        }
+
+        @Override
+        public TransactionItem read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String id = null;
+            String transactionId = null;
+            int quantity = 1;
+            double price = 0.0;
+            String productId = null;
+            String rowProductId = null;
+            String productName = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = readString(in);
+                        break;
+                    case "transaction_id":
+                        transactionId = readString(in);
+                        break;
+                    case "product_id":
+                        rowProductId = readString(in);
+                        break;
+                    case "quantity":
+                        quantity = (int) readNumber(in, 1);
+                        break;
+                    case "price":
+                        price = readNumber(in, 0.0);
+                        break;
+                    case "product":
+                        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                            in.beginObject();
+                            while (in.hasNext()) {
+                                switch (in.nextName()) {
+                                    case "id":
+                                        productId = readString(in);
+                                        break;
+                                    case "name":
+                                        productName = readString(in);
+                                        break;
+                                    default:
+                                        in.skipValue();
+                                        break;
+                                }
+                            }
+                            in.endObject();
+                        } else {
+                            in.skipValue();
+                        }
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            // Id dari produk yang di-embed; kolom product_id bila produknya sudah tidak ada
+            if (productId == null) productId = rowProductId;
+            return new TransactionItem(id, transactionId, quantity, price, productId, productName);
+        }
+
+        private static String readString(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return in.nextString();
+        }
+
+        private static double readNumber(JsonReader in, double fallback) throws IOException {
+            switch (in.peek()) {
+                case NUMBER:
+                    return in.nextDouble();
+                case STRING:
+                    try {
+                        return Double.parseDouble(in.nextString());
+                    } catch (NumberFormatException e) {
+                        return fallback;
+                    }
+                default:
+                    in.skipValue();
+                    return fallback;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.creamsyapp.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Penjualan yang sudah di-commit journal tetapi belum tentu terlihat di stok server yang dimuat (base).
+// Jumlahnya tetap dikurangkan dari base sampai fetch yang dimulai setelah commit mengganti produknya;
+// tanpa ini stok kembali ke angka base lama begitu penjualan hilang dari journal.
+// Posisi = nomor urut commit, jadi fetch cukup mencatat sequence() saat request dimulai.
+final class CommittedSales {
+    private final List<Sale> sales = new ArrayList<>();
+    private long sequence = 0;
+
+    private static final class Sale {
+        final long position;
+        // product_id -> jumlah terjual yang belum terlihat di base
+        final Map<String, Integer> quantities;
+
+        Sale(long position, Map<String, Integer> quantities) {
+            this.position = position;
+            this.quantities = quantities;
+        }
+    }
+
+    // Posisi commit terakhir; dicatat pemanggil tepat sebelum fetch dimulai
+    long sequence() {
+        return sequence;
+    }
+
+    void add(Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) return;
+        sales.add(new Sale(++sequence, new LinkedHashMap<>(quantities)));
+    }
+
+    // Fetch yang dimulai pada posisi startedAt sudah memuat stok setelah penjualan sampai posisi itu.
+    // productIds = produk yang diganti fetch tersebut; null untuk muat penuh.
+    void confirm(Collection<String> productIds, long startedAt) {
+        Iterator<Sale> iterator = sales.iterator();
+        while (iterator.hasNext()) {
+            Sale sale = iterator.next();
+            if (sale.position > startedAt) continue;
+            if (productIds == null) {
+                sale.quantities.clear();
+            } else {
+                sale.quantities.keySet().removeAll(productIds);
+            }
+            if (sale.quantities.isEmpty()) iterator.remove();
+        }
+    }
+
+    // Tambahkan jumlah yang belum terlihat di base ke sold (product_id -> jumlah)
+    void addTo(Map<String, Integer> sold) {
+        for (Sale sale : sales) {
+            for (Map.Entry<String, Integer> line : sale.quantities.entrySet()) {
+                sold.put(line.getKey(), sold.getOrDefault(line.getKey(), 0) + line.getValue());
+            }
+        }
+    }
+
+    void clear() {
+        sales.clear();
+    }
+}
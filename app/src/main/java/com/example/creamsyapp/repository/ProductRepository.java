@@ -0,0 +1,283 @@
+package com.example.creamsyapp.repository;
+
+import android.content.Context;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.creamsyapp.product.IceCreamProduct;
+import com.example.creamsyapp.supabase.CheckoutJournal;
+import com.example.creamsyapp.supabase.SupabaseHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+// Katalog produk bersama untuk seluruh proses. Semua layar mengamati snapshot yang sama (LiveData)
+// dan hanya saling mengirim id lewat Intent; muat ulang, delta sync, tambah/edit/hapus dan penjualan
+// memperbarui snapshot sehingga setiap layar ikut berubah tanpa mengunduh ulang.
+// Snapshot immutable: setiap perubahan membuat list baru (dan salinan baru untuk produk yang berubah).
+// Stok dari server (base) disimpan terpisah dari penjualan yang masih di journal; snapshot = base dikurangi
+// penjualan yang saat ini masih tertunda, dihitung ulang setiap kali isi journal berubah. Penjualan yang
+// sudah tersinkron tetap dikurangkan (CommittedSales) sampai fetch yang dimulai setelah commit-nya
+// mengganti produk tersebut, sehingga stok tidak kembali ke angka base lama sebelum muat ulang.
+public class ProductRepository {
+    private static final String TAG = "ProductRepository";
+
+    private static ProductRepository instance;
+
+    private final Context appContext;
+    private final SupabaseHelper supabaseHelper = SupabaseHelper.getInstance();
+    private final MutableLiveData<List<IceCreamProduct>> liveProducts =
+            new MutableLiveData<>(Collections.emptyList());
+    // Stok apa adanya dari server (tanpa penjualan tertunda)
+    private List<IceCreamProduct> base = Collections.emptyList();
+    private List<IceCreamProduct> current = Collections.emptyList();
+    private final CommittedSales committedSales = new CommittedSales();
+    // Muat penuh yang sedang berjalan; pemanggil berikutnya ikut request ini agar posisi awalnya tetap benar
+    private CompletableFuture<List<IceCreamProduct>> reloading;
+    private boolean loaded = false;
+
+    private ProductRepository(Context context) {
+        appContext = context;
+        CheckoutJournal journal = CheckoutJournal.getInstance(appContext);
+        journal.addCommitListener(this::saleCommitted);
+        journal.addListener(this::pendingSalesChanged);
+    }
+
+    public static synchronized ProductRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new ProductRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public LiveData<List<IceCreamProduct>> getProducts() {
+        return liveProducts;
+    }
+
+    public synchronized List<IceCreamProduct> snapshot() {
+        return current;
+    }
+
+    // true setelah muat penuh pertama berhasil
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized IceCreamProduct findById(String id) {
+        for (IceCreamProduct product : current) {
+            if (product.getId().equals(id)) return product;
+        }
+        return null;
+    }
+
+    // Muat penuh bila belum pernah; selain itu cukup produk yang berubah sejak sinkronisasi terakhir
+    public CompletableFuture<List<IceCreamProduct>> refresh() {
+        if (isLoaded() && supabaseHelper.hasProductsWatermark()) return syncChanges();
+        return reload();
+    }
+
+    public CompletableFuture<List<IceCreamProduct>> reload() {
+        CompletableFuture<List<IceCreamProduct>> published;
+        synchronized (this) {
+            if (reloading == null) {
+                long startedAt = fetchStartPosition();
+                CompletableFuture<List<IceCreamProduct>> request = supabaseHelper.loadProductsAsync().thenApply(products -> {
+                    synchronized (this) {
+                        loaded = true;
+                        committedSales.confirm(null, startedAt);
+                        return publishBase(products);
+                    }
+                });
+                reloading = request;
+                request.whenComplete((products, error) -> {
+                    synchronized (this) {
+                        if (reloading == request) reloading = null;
+                    }
+                });
+            }
+            published = reloading;
+        }
+        // Pemanggil mendapat future turunan: timeout/cancel di satu layar tidak membuang hasil untuk layar lain
+        return published.thenApply(products -> products);
+    }
+
+    private CompletableFuture<List<IceCreamProduct>> syncChanges() {
+        CompletableFuture<List<IceCreamProduct>> future = new CompletableFuture<>();
+        long startedAt = fetchStartPosition();
+        supabaseHelper.syncProductChanges(new SupabaseHelper.ProductChangesCallback() {
+            @Override
+            public void onSuccess(List<IceCreamProduct> changed, List<String> deletedIds) {
+                future.complete(mergeChanges(changed, deletedIds, startedAt));
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, "Delta sync failed, reloading catalog: " + error);
+                reload().whenComplete((products, e) -> {
+                    if (e != null) {
+                        future.completeExceptionally(e);
+                    } else {
+                        future.complete(products);
+                    }
+                });
+            }
+        });
+        return future;
+    }
+
+    // Server membuat id produk sendiri, jadi produk baru diambil lewat delta sync setelah tersimpan
+    public CompletableFuture<String> addProduct(IceCreamProduct product) {
+        return supabaseHelper.addProductAsync(product)
+                .thenCompose(id -> refresh().thenApply(products -> id));
+    }
+
+    public CompletableFuture<String> updateProduct(IceCreamProduct product) {
+        return supabaseHelper.updateProductAsync(product).thenApply(id -> {
+            synchronized (this) {
+                // Stok yang diisi kasir adalah nilai mutlak di server, bukan sebelum penjualan yang tersinkron
+                committedSales.confirm(Collections.singleton(product.getId()), committedSales.sequence());
+                List<IceCreamProduct> next = new ArrayList<>(base);
+                for (int i = 0; i < next.size(); i++) {
+                    if (next.get(i).getId().equals(product.getId())) {
+                        next.set(i, new IceCreamProduct(product));
+                        break;
+                    }
+                }
+                publishBase(next);
+            }
+            return id;
+        });
+    }
+
+    // Produk yang benar-benar terhapus di server langsung hilang dari snapshot (juga saat sebagian gagal)
+    public void deleteProducts(List<String> productIds, SupabaseHelper.BulkDeleteCallback callback) {
+        supabaseHelper.deleteProducts(productIds, new SupabaseHelper.BulkDeleteCallback() {
+            @Override
+            public void onSuccess(List<String> removedIds) {
+                removeLocal(removedIds);
+                callback.onSuccess(removedIds);
+            }
+
+            @Override
+            public void onError(String error, List<String> removedIds) {
+                removeLocal(removedIds);
+                callback.onError(error, removedIds);
+            }
+        });
+    }
+
+    // Isi journal berubah (penjualan baru tercatat, tersinkron, ditolak, atau dibuang): hitung ulang stok
+    private synchronized void pendingSalesChanged() {
+        publishBase(base);
+    }
+
+    // Dipanggil sebelum entri hilang dari pending; snapshot diterbitkan oleh pendingSalesChanged sesudahnya
+    private synchronized void saleCommitted(CheckoutJournal.Entry entry) {
+        if (!entry.isOwnedBy(supabaseHelper.getCurrentUserId())) return;
+        Map<String, Integer> quantities = new HashMap<>();
+        for (CheckoutJournal.Line line : entry.getLines()) {
+            quantities.put(line.getProductId(), quantities.getOrDefault(line.getProductId(), 0) + line.getQuantity());
+        }
+        committedSales.add(quantities);
+    }
+
+    // Posisi commit yang pasti sudah terlihat oleh fetch yang dimulai sekarang. Selama write-behind masih
+    // menahan delta stok (checkout alur lama), stok server belum dikurangi, jadi belum ada yang dikonfirmasi.
+    private synchronized long fetchStartPosition() {
+        return supabaseHelper.getStockWriteBehind().hasPending() ? 0L : committedSales.sequence();
+    }
+
+    // Saat logout: data milik user sebelumnya tidak boleh terlihat
+    public synchronized void clear() {
+        loaded = false;
+        committedSales.clear();
+        publishBase(new ArrayList<>());
+    }
+
+    private synchronized List<IceCreamProduct> mergeChanges(List<IceCreamProduct> changed, List<String> deletedIds,
+                                                            long startedAt) {
+        if (changed.isEmpty() && deletedIds.isEmpty()) return current;
+        Set<String> deleted = new HashSet<>(deletedIds);
+        Map<String, IceCreamProduct> changedById = new HashMap<>();
+        for (IceCreamProduct p : changed) changedById.put(p.getId(), p);
+        committedSales.confirm(changedById.keySet(), startedAt);
+
+        // Urutan id.desc seperti muat penuh
+        List<IceCreamProduct> next = new ArrayList<>();
+        for (IceCreamProduct p : base) {
+            if (deleted.contains(p.getId())) continue;
+            IceCreamProduct replacement = changedById.remove(p.getId());
+            next.add(replacement != null ? replacement : p);
+        }
+        for (IceCreamProduct p : changedById.values()) {
+            int insertAt = 0;
+            while (insertAt < next.size() && compareIds(next.get(insertAt).getId(), p.getId()) > 0) insertAt++;
+            next.add(insertAt, p);
+        }
+        Log.d(TAG, "Merged product changes: " + changed.size() + " upserted, " + deletedIds.size() + " deleted");
+        return publishBase(next);
+    }
+
+    // Urutan id seperti ORDER BY id di server: numerik untuk id bigint, leksikal untuk id lain
+    static int compareIds(String a, String b) {
+        try {
+            return Long.compare(Long.parseLong(a), Long.parseLong(b));
+        } catch (NumberFormatException e) {
+            return a.compareTo(b);
+        }
+    }
+
+    private synchronized void removeLocal(List<String> ids) {
+        if (ids.isEmpty()) return;
+        Set<String> removed = new HashSet<>(ids);
+        List<IceCreamProduct> next = new ArrayList<>();
+        for (IceCreamProduct p : base) {
+            if (!removed.contains(p.getId())) next.add(p);
+        }
+        publishBase(next);
+    }
+
+    // Simpan stok server lalu terbitkan snapshot yang sudah dikurangi penjualan yang masih ada di journal
+    // dan penjualan tersinkron yang belum terlihat di base
+    private synchronized List<IceCreamProduct> publishBase(List<IceCreamProduct> serverProducts) {
+        base = Collections.unmodifiableList(serverProducts);
+        Map<String, Integer> sold = new HashMap<>();
+        committedSales.addTo(sold);
+        for (CheckoutJournal.Entry entry : CheckoutJournal.getInstance(appContext).pending(supabaseHelper.getCurrentUserId())) {
+            for (CheckoutJournal.Line line : entry.getLines()) {
+                sold.put(line.getProductId(), sold.getOrDefault(line.getProductId(), 0) + line.getQuantity());
+            }
+        }
+        List<IceCreamProduct> next = new ArrayList<>(base.size());
+        for (IceCreamProduct product : base) {
+            Integer quantity = sold.get(product.getId());
+            if (quantity == null) {
+                next.add(product);
+            } else {
+                IceCreamProduct adjusted = new IceCreamProduct(product);
+                adjusted.setStock(product.getStock() - quantity);
+                next.add(adjusted);
+            }
+        }
+        return publish(next);
+    }
+
+    private synchronized List<IceCreamProduct> publish(List<IceCreamProduct> products) {
+        current = Collections.unmodifiableList(products);
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            liveProducts.setValue(current);
+        } else {
+            liveProducts.postValue(current);
+        }
+        return current;
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.creamsyapp.repository;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.creamsyapp.product.Transaction;
+import com.example.creamsyapp.supabase.CheckoutJournal;
+import com.example.creamsyapp.supabase.CheckoutSyncEngine;
+import com.example.creamsyapp.supabase.SupabaseException;
+import com.example.creamsyapp.supabase.SupabaseHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+// Riwayat transaksi bersama untuk seluruh proses: halaman yang sudah dimuat (keyset, per PAGE_SIZE)
+// ditambah penjualan yang masih menunggu sinkronisasi di journal. MainActivity memuat halaman pertama,
+// HistoryActivity mengamati snapshot yang sama dan hanya memuat halaman berikutnya saat digulir.
+// Baris dari server dan penjualan di journal disimpan terpisah; snapshot disusun ulang setiap kali
+// isi journal berubah, sehingga penjualan yang sudah tersinkron/dibuang tidak tertinggal di riwayat.
+public class TransactionRepository {
+    public static final int PAGE_SIZE = 50;
+
+    private static TransactionRepository instance;
+
+    private final Context appContext;
+    private final SupabaseHelper supabaseHelper = SupabaseHelper.getInstance();
+    private final MutableLiveData<List<Transaction>> liveTransactions =
+            new MutableLiveData<>(Collections.emptyList());
+    // Halaman yang sudah dimuat dari server (tanpa penjualan tertunda)
+    private List<Transaction> serverRows = new ArrayList<>();
+    private List<Transaction> current = Collections.emptyList();
+    private SupabaseHelper.PageCursor nextCursor;
+    private boolean loadingPage = false;
+    private boolean loaded = false;
+    // Naik setiap refresh agar respons halaman lama diabaikan
+    private int generation = 0;
+
+    private TransactionRepository(Context context) {
+        appContext = context;
+        CheckoutJournal.getInstance(appContext).addListener(this::pendingSalesChanged);
+    }
+
+    public static synchronized TransactionRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new TransactionRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public LiveData<List<Transaction>> getTransactions() {
+        return liveTransactions;
+    }
+
+    public synchronized List<Transaction> snapshot() {
+        return current;
+    }
+
+    // true setelah halaman pertama pernah dimuat
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized boolean hasMorePages() {
+        return nextCursor != null;
+    }
+
+    // Muat ulang halaman pertama; snapshot diganti saat batch pertama tiba
+    public CompletableFuture<Void> refresh() {
+        int pageGeneration;
+        synchronized (this) {
+            pageGeneration = ++generation;
+            nextCursor = null;
+        }
+        return loadPage(null, pageGeneration, true);
+    }
+
+    public CompletableFuture<Void> loadNextPage() {
+        SupabaseHelper.PageCursor cursor;
+        int pageGeneration;
+        synchronized (this) {
+            if (loadingPage || nextCursor == null) return CompletableFuture.completedFuture(null);
+            cursor = nextCursor;
+            pageGeneration = generation;
+        }
+        return loadPage(cursor, pageGeneration, false);
+    }
+
+    // Halaman didecode per elemen dan diterbitkan bertahap (lihat streamTransactionsPage)
+    private CompletableFuture<Void> loadPage(SupabaseHelper.PageCursor cursor, int pageGeneration, boolean replace) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (this) {
+            loadingPage = true;
+        }
+        boolean[] cleared = {!replace};
+        supabaseHelper.streamTransactionsPage(cursor, PAGE_SIZE, new SupabaseHelper.TransactionStreamCallback() {
+            @Override
+            public void onBatch(List<Transaction> batch) {
+                synchronized (TransactionRepository.this) {
+                    if (pageGeneration != generation) return;
+                    if (!cleared[0]) serverRows = new ArrayList<>();
+                    cleared[0] = true;
+                    serverRows.addAll(batch);
+                    publishRows();
+                }
+            }
+
+            @Override
+            public void onComplete(int count, SupabaseHelper.PageCursor next) {
+                synchronized (TransactionRepository.this) {
+                    if (pageGeneration == generation) {
+                        // Riwayat kosong: hanya penjualan yang belum tersinkron
+                        if (!cleared[0]) {
+                            serverRows = new ArrayList<>();
+                            publishRows();
+                        }
+                        loadingPage = false;
+                        loaded = true;
+                        nextCursor = next;
+                    }
+                }
+                future.complete(null);
+            }
+
+            @Override
+            public void onError(String error) {
+                synchronized (TransactionRepository.this) {
+                    if (pageGeneration == generation) loadingPage = false;
+                }
+                future.completeExceptionally(new SupabaseException(error));
+            }
+        });
+        return future;
+    }
+
+    // Hapus transaksi terpilih. Penjualan yang belum tersinkron (id journal) cukup dibuang dari journal;
+    // hanya id server yang dikirim ke delete. Panggil di main thread.
+    public CompletableFuture<Void> deleteTransactions(List<String> ids) {
+        CheckoutJournal journal = CheckoutJournal.getInstance(appContext);
+        CheckoutSyncEngine syncEngine = CheckoutSyncEngine.getInstance(appContext);
+        List<String> serverIds = new ArrayList<>();
+        List<String> journalIds = new ArrayList<>();
+        for (String id : ids) {
+            if (!journal.isPending(id)) {
+                serverIds.add(id);
+            } else if (syncEngine.isSyncing(id)) {
+                return syncingFailure();
+            } else {
+                journalIds.add(id);
+            }
+        }
+        for (String id : journalIds) syncEngine.discardPending(id);
+        if (serverIds.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        return supabaseHelper.deleteTransactionsByIdsAsync(serverIds).thenRun(() -> {
+            synchronized (this) {
+                Set<String> removed = new HashSet<>(serverIds);
+                List<Transaction> next = new ArrayList<>();
+                for (Transaction t : serverRows) {
+                    if (!removed.contains(t.getId())) next.add(t);
+                }
+                serverRows = next;
+                publishRows();
+            }
+        });
+    }
+
+    // Hapus semua transaksi user di server beserta penjualannya yang belum tersinkron. Panggil di main thread.
+    public CompletableFuture<Void> deleteAllTransactions() {
+        CheckoutSyncEngine syncEngine = CheckoutSyncEngine.getInstance(appContext);
+        List<CheckoutJournal.Entry> pending = CheckoutJournal.getInstance(appContext).pending(supabaseHelper.getCurrentUserId());
+        for (CheckoutJournal.Entry entry : pending) {
+            if (syncEngine.isSyncing(entry.getId())) return syncingFailure();
+        }
+        for (CheckoutJournal.Entry entry : pending) syncEngine.discardPending(entry.getId());
+        return supabaseHelper.deleteAllTransactionsForUserAsync().thenRun(this::clear);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        nextCursor = null;
+        loadingPage = false;
+        loaded = false;
+        serverRows = new ArrayList<>();
+        publishRows();
+    }
+
+    // Penjualan yang sedang dikirim mungkin sudah tersimpan di server; hapus setelah tersinkron
+    private static CompletableFuture<Void> syncingFailure() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(new SupabaseException("Sale is being synced, try again in a moment"));
+        return future;
+    }
+
+    private synchronized void pendingSalesChanged() {
+        publishRows();
+    }
+
+    // Penjualan yang belum tersinkron ke server (terbaru dulu), mis. untuk ekspor riwayat
+    public List<Transaction> pendingSales() {
+        List<Transaction> sales = new ArrayList<>();
+        List<CheckoutJournal.Entry> pending = CheckoutJournal.getInstance(appContext).pending(supabaseHelper.getCurrentUserId());
+        // Journal urut dari yang terlama; riwayat dari yang terbaru
+        for (int i = pending.size() - 1; i >= 0; i--) sales.add(pending.get(i).toTransaction());
+        return sales;
+    }
+
+    // Penjualan tertunda (terbaru dulu) di atas baris server
+    private synchronized void publishRows() {
+        List<Transaction> next = pendingSales();
+        next.addAll(serverRows);
+        publish(next);
+    }
+
+    private synchronized void publish(List<Transaction> transactions) {
+        current = Collections.unmodifiableList(transactions);
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            liveTransactions.setValue(current);
+        } else {
+            liveTransactions.postValue(current);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.creamsyapp.supabase;
+
+import android.os.SystemClock;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Dns;
+
+// Cache hasil DNS per host selama TTL singkat agar koneksi baru (pool habis/idle) tidak resolve ulang.
+// Bila resolve gagal tetapi masih ada hasil lama, hasil lama dipakai.
+class CachingDns implements Dns {
+    private static final long TTL_MILLIS = 5 * 60_000L;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        long now = SystemClock.elapsedRealtime();
+        Entry entry = cache.get(hostname);
+        if (entry != null && now - entry.resolvedAt < TTL_MILLIS) return entry.addresses;
+        try {
+            List<InetAddress> addresses = Dns.SYSTEM.lookup(hostname);
+            cache.put(hostname, new Entry(addresses, now));
+            return addresses;
+        } catch (UnknownHostException e) {
+            if (entry != null) return entry.addresses;
+            throw e;
+        }
+    }
+
+    private static class Entry {
+        final List<InetAddress> addresses;
+        final long resolvedAt;
+
+        Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
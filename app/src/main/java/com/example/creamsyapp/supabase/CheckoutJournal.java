@@ -0,0 +1,394 @@
+package com.example.creamsyapp.supabase;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.creamsyapp.product.IceCreamProduct;
+import com.example.creamsyapp.product.Transaction;
+import com.example.creamsyapp.product.TransactionItem;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Journal checkout append-only (write-ahead log) di penyimpanan lokal.
+// Setiap penjualan ditulis dulu ke file ini, lalu CheckoutSyncEngine mengirimnya ke Supabase secara berurutan.
+// Entri mencatat pemilik (user kasir); hanya entri milik sesi aktif yang disinkronkan/ditampilkan,
+// entri kasir lain tetap tersimpan sampai kasir tersebut login kembali.
+// Format per baris:
+//   A <json entry>       -> penjualan baru (atau dikembalikan ke antrean setelah ditolak)
+//   C <entryId>          -> penjualan selesai disinkronkan atau dibuang
+//   D <entryId> <error>  -> penjualan ditolak server secara permanen (dead letter), tidak dikirim ulang otomatis
+public class CheckoutJournal {
+    private static final String TAG = "CheckoutJournal";
+    private static final String FILE_NAME = "checkout_journal.log";
+
+    private static final String RECORD_APPEND = "A";
+    private static final String RECORD_COMMIT = "C";
+    private static final String RECORD_REJECT = "D";
+
+    private static CheckoutJournal instance;
+
+    private final File file;
+    private final Gson gson = new Gson();
+    // Urutan insert = urutan checkout
+    private final LinkedHashMap<String, Entry> pending = new LinkedHashMap<>();
+    // Penjualan yang ditolak server (4xx permanen); menunggu keputusan kasir
+    private final LinkedHashMap<String, Entry> rejected = new LinkedHashMap<>();
+    // Penulisan + fsync tidak boleh di main thread
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    // Dipanggil (di thread penulis, di luar lock journal) setiap kali isi pending/rejected berubah
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    // Dipanggil sebelum entri yang tersinkron dilepas dari pending (juga di thread penulis, di luar lock)
+    private final List<CommitListener> commitListeners = new CopyOnWriteArrayList<>();
+
+    public interface CommitListener {
+        void onCommitted(Entry entry);
+    }
+
+    private CheckoutJournal(Context context) {
+        file = new File(context.getFilesDir(), FILE_NAME);
+        replay();
+    }
+
+    public static synchronized CheckoutJournal getInstance(Context context) {
+        if (instance == null) {
+            instance = new CheckoutJournal(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    public void addCommitListener(CommitListener listener) {
+        commitListeners.add(listener);
+    }
+
+    // Tulis penjualan baru ke journal (di-fsync sebelum kembali)
+    public void append(Entry entry) throws IOException {
+        synchronized (this) {
+            writeRecord(RECORD_APPEND + " " + gson.toJson(entry));
+            pending.put(entry.id, entry);
+        }
+        notifyListeners();
+    }
+
+    // append() di thread IO; future selesai setelah entri aman di disk
+    public CompletableFuture<Void> appendAsync(Entry entry) {
+        return onIo(() -> append(entry));
+    }
+
+    // Tandai penjualan selesai disinkronkan; file dipadatkan bila tidak ada lagi yang tertunda
+    public void commit(String entryId) {
+        Entry entry;
+        synchronized (this) {
+            entry = pending.get(entryId);
+        }
+        if (entry == null) return;
+        // Pengamat mencatat penjualan sebagai tersinkron sebelum hilang dari pending,
+        // sehingga stok yang ditampilkan tidak sempat kembali ke angka sebelum penjualan
+        for (CommitListener listener : commitListeners) listener.onCommitted(entry);
+        synchronized (this) {
+            if (pending.remove(entryId) == null) return;
+            writeCommit(entryId);
+        }
+        notifyListeners();
+    }
+
+    // commit() di thread IO (callback Retrofit datang di main thread)
+    public CompletableFuture<Void> commitAsync(String entryId) {
+        return onIo(() -> commit(entryId));
+    }
+
+    // Pindahkan penjualan ke dead letter: tidak lagi menahan antrean di belakangnya
+    public void reject(String entryId, String error) {
+        synchronized (this) {
+            Entry entry = pending.remove(entryId);
+            if (entry == null) return;
+            entry.error = error;
+            rejected.put(entryId, entry);
+            try {
+                writeRecord(RECORD_REJECT + " " + entryId + " " + singleLine(error));
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to journal reject: " + e.getMessage());
+            }
+        }
+        notifyListeners();
+    }
+
+    public CompletableFuture<Void> rejectAsync(String entryId, String error) {
+        return onIo(() -> reject(entryId, error));
+    }
+
+    // Kembalikan penjualan yang ditolak ke akhir antrean (mis. setelah data di server diperbaiki)
+    public CompletableFuture<Void> requeueAsync(String entryId) {
+        return onIo(() -> {
+            synchronized (this) {
+                Entry entry = rejected.get(entryId);
+                if (entry == null) return;
+                writeRecord(RECORD_APPEND + " " + gson.toJson(entry));
+                rejected.remove(entryId);
+                entry.error = null;
+                pending.put(entryId, entry);
+            }
+            notifyListeners();
+        });
+    }
+
+    // Buang penjualan yang tertunda atau ditolak tanpa mengirimnya ke server.
+    // Langsung hilang dari memori (peek tidak lagi mengembalikannya); record-nya ditulis di thread IO.
+    public CompletableFuture<Void> discardAsync(String entryId) {
+        synchronized (this) {
+            if (pending.remove(entryId) == null && rejected.remove(entryId) == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        notifyListeners();
+        return onIo(() -> {
+            synchronized (this) {
+                writeCommit(entryId);
+            }
+        });
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) listener.run();
+    }
+
+    private interface IoTask {
+        void run() throws IOException;
+    }
+
+    private CompletableFuture<Void> onIo(IoTask task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, ioExecutor);
+    }
+
+    // Penjualan tertunda milik userId, urut dari yang terlama
+    public synchronized List<Entry> pending(String userId) {
+        List<Entry> owned = new ArrayList<>();
+        for (Entry entry : pending.values()) {
+            if (entry.isOwnedBy(userId)) owned.add(entry);
+        }
+        return owned;
+    }
+
+    public synchronized Entry peek(String userId) {
+        for (Entry entry : pending.values()) {
+            if (entry.isOwnedBy(userId)) return entry;
+        }
+        return null;
+    }
+
+    public synchronized int pendingCount(String userId) {
+        return pending(userId).size();
+    }
+
+    public synchronized boolean isPending(String entryId) {
+        return pending.containsKey(entryId);
+    }
+
+    public synchronized Entry findPending(String entryId) {
+        return pending.get(entryId);
+    }
+
+    // Penjualan milik userId yang ditolak server, urut dari yang terlama
+    public synchronized List<Entry> rejected(String userId) {
+        List<Entry> owned = new ArrayList<>();
+        for (Entry entry : rejected.values()) {
+            if (entry.isOwnedBy(userId)) owned.add(entry);
+        }
+        return owned;
+    }
+
+    private void writeCommit(String entryId) {
+        try {
+            if (pending.isEmpty()) {
+                compact();
+            } else {
+                writeRecord(RECORD_COMMIT + " " + entryId);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to journal commit: " + e.getMessage());
+        }
+    }
+
+    private void writeRecord(String record) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write((record + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            out.getFD().sync();
+        }
+    }
+
+    // Tulis ulang file hanya dengan dead letter yang tersisa (file sementara lalu rename, agar tidak terpotong)
+    private void compact() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp, false)) {
+            for (Entry entry : rejected.values()) {
+                String records = RECORD_APPEND + " " + gson.toJson(entry) + "\n"
+                        + RECORD_REJECT + " " + entry.id + " " + singleLine(entry.error) + "\n";
+                out.write(records.getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) throw new IOException("Failed to replace " + file.getName());
+    }
+
+    private static String singleLine(String text) {
+        return text == null ? "" : text.replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private void replay() {
+        if (!file.exists()) return;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int sep = line.indexOf(' ');
+                if (sep <= 0) continue;
+                String type = line.substring(0, sep);
+                String payload = line.substring(sep + 1);
+                switch (type) {
+                    case RECORD_APPEND:
+                        try {
+                            Entry entry = gson.fromJson(payload, Entry.class);
+                            if (entry != null && entry.id != null) {
+                                rejected.remove(entry.id);
+                                pending.put(entry.id, entry);
+                            }
+                        } catch (JsonSyntaxException e) {
+                            // Baris terakhir bisa terpotong jika aplikasi mati saat menulis
+                            Log.w(TAG, "Skipping torn journal record");
+                        }
+                        break;
+                    case RECORD_COMMIT:
+                        pending.remove(payload.trim());
+                        rejected.remove(payload.trim());
+                        break;
+                    case RECORD_REJECT: {
+                        int idEnd = payload.indexOf(' ');
+                        String id = idEnd < 0 ? payload.trim() : payload.substring(0, idEnd);
+                        Entry entry = pending.remove(id);
+                        if (entry != null) {
+                            entry.error = idEnd < 0 ? "" : payload.substring(idEnd + 1);
+                            rejected.put(id, entry);
+                        }
+                        break;
+                    }
+                    default:
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to replay checkout journal", e);
+        }
+        Log.d(TAG, "Replayed journal, pending sales: " + pending.size() + ", rejected: " + rejected.size());
+    }
+
+    // Satu penjualan di journal
+    public static class Entry {
+        String id;
+        String userId;
+        double total;
+        double amountPaid;
+        double change;
+        long timestampMillis;
+        List<Line> lines = new ArrayList<>();
+        // Alasan penolakan server (dead letter); disimpan di record D, bukan di JSON entri
+        transient String error;
+
+        public Entry(String id, String userId, double total, double amountPaid, double change, long timestampMillis) {
+            this.id = id;
+            this.userId = userId;
+            this.total = total;
+            this.amountPaid = amountPaid;
+            this.change = change;
+            this.timestampMillis = timestampMillis;
+        }
+
+        // Tambah satu baris produk yang terjual
+        public void addLine(IceCreamProduct product, int quantity) {
+            Line line = new Line();
+            line.productId = product.getId();
+            line.name = product.getName();
+            line.price = product.getPrice();
+            line.imageUrl = product.getImageUrl();
+            line.quantity = quantity;
+            lines.add(line);
+        }
+
+        public String getId() { return id; }
+        public String getUserId() { return userId; }
+        public double getTotal() { return total; }
+        public long getTimestampMillis() { return timestampMillis; }
+        public String getError() { return error; }
+
+        // Entri dari versi lama belum punya pemilik; diambil alih oleh user pertama yang login
+        public boolean isOwnedBy(String uid) {
+            return uid != null && (userId == null || userId.equals(uid));
+        }
+        public List<Line> getLines() { return lines; }
+
+        // Item transaksi versi lokal (belum punya id server)
+        public List<TransactionItem> toItems() {
+            List<TransactionItem> items = new ArrayList<>();
+            for (Line line : lines) {
+                items.add(new TransactionItem(null, id, line.quantity, line.price, line.productId, line.name));
+            }
+            return items;
+        }
+
+        // Bentuk ulang Transaction (satu entri item per unit, sama seperti isi keranjang)
+        public Transaction toTransaction() {
+            List<IceCreamProduct> items = new ArrayList<>();
+            for (Line line : lines) {
+                IceCreamProduct p = line.toProduct();
+                for (int i = 0; i < line.quantity; i++) items.add(p);
+            }
+            return new Transaction(id, items, total, amountPaid, change, new Date(timestampMillis));
+        }
+    }
+
+    public static class Line {
+        String productId;
+        String name;
+        double price;
+        String imageUrl;
+        int quantity;
+
+        public String getProductId() { return productId; }
+        public int getQuantity() { return quantity; }
+
+        IceCreamProduct toProduct() {
+            return new IceCreamProduct(productId, name, price, 0, 0, imageUrl);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.creamsyapp.supabase;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Mengirim isi CheckoutJournal ke Supabase satu per satu sesuai urutan checkout.
+// Berjalan saat dipanggil (setelah checkout) dan otomatis saat koneksi kembali tersedia.
+public class CheckoutSyncEngine {
+    private static final String TAG = "CheckoutSyncEngine";
+
+    // Jeda antar percobaan ulang seluruh antrean bila server tetap menolak (maks. 5 menit)
+    private static final RetryPolicy RETRY_POLICY = new RetryPolicy(2_000L, 300_000L, Integer.MAX_VALUE);
+
+    private static CheckoutSyncEngine instance;
+
+    private final Context appContext;
+    private final CheckoutJournal journal;
+    private final SupabaseHelper supabaseHelper;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean draining = false;
+    private boolean networkCallbackRegistered = false;
+    private SyncListener listener;
+    private int failedAttempts = 0;
+    // Entri yang sedang dikirim (main thread); tidak boleh dibuang sampai hasilnya diketahui
+    private String inFlightId;
+    private final Runnable retryTask = this::drain;
+
+    public interface SyncListener {
+        void onSaleSynced(String entryId, int remaining);
+        void onSyncPaused(String error, int remaining);
+        // Server menolak penjualan secara permanen; entri dipindah ke dead letter dan antrean lanjut
+        void onSaleRejected(String entryId, String error);
+    }
+
+    private CheckoutSyncEngine(Context context) {
+        appContext = context.getApplicationContext();
+        journal = CheckoutJournal.getInstance(appContext);
+        supabaseHelper = SupabaseHelper.getInstance();
+    }
+
+    public static synchronized CheckoutSyncEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new CheckoutSyncEngine(context);
+        }
+        return instance;
+    }
+
+    public void setListener(SyncListener listener) {
+        this.listener = listener;
+    }
+
+    // Daftarkan pemantau koneksi lalu kirim penjualan yang masih tertunda
+    public void start() {
+        if (!networkCallbackRegistered) {
+            ConnectivityManager cm = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (cm != null) {
+                try {
+                    cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                        @Override
+                        public void onAvailable(Network network) {
+                            mainHandler.post(() -> drain());
+                        }
+                    });
+                    networkCallbackRegistered = true;
+                } catch (Exception e) {
+                    Log.w(TAG, "Failed to register network callback: " + e.getMessage());
+                }
+            }
+        }
+        drain();
+    }
+
+    public int pendingCount() {
+        return journal.pendingCount(supabaseHelper.getCurrentUserId());
+    }
+
+    public List<CheckoutJournal.Entry> rejectedSales() {
+        return journal.rejected(supabaseHelper.getCurrentUserId());
+    }
+
+    // Kirim ulang penjualan yang ditolak (setelah masalah di server diperbaiki)
+    public void retryRejected(String entryId) {
+        journal.requeueAsync(entryId).whenComplete((v, error) -> {
+            if (error != null) {
+                Log.w(TAG, "Failed to requeue sale: " + Futures.messageOf(error));
+                return;
+            }
+            mainHandler.post(() -> {
+                mainHandler.removeCallbacks(retryTask);
+                failedAttempts = 0;
+                drain();
+            });
+        });
+    }
+
+    // Buang penjualan yang ditolak; stok lokal kembali mengikuti server pada refresh berikutnya
+    public CompletableFuture<Void> discardRejected(String entryId) {
+        return journal.discardAsync(entryId);
+    }
+
+    // Batalkan penjualan yang belum terkirim (hapus dari riwayat sebelum tersinkron). Panggil di main thread.
+    // false bila penjualan sedang dikirim: server mungkin sudah menyimpannya, jadi tunggu hingga tersinkron.
+    public boolean discardPending(String entryId) {
+        if (entryId.equals(inFlightId)) return false;
+        journal.discardAsync(entryId).whenComplete((v, error) -> {
+            if (error != null) Log.w(TAG, "Failed to journal discard: " + Futures.messageOf(error));
+        });
+        return true;
+    }
+
+    // Main thread
+    public boolean isSyncing(String entryId) {
+        return entryId.equals(inFlightId);
+    }
+
+    // Proses antrean dari depan; berhenti di kegagalan sementara pertama agar urutan tetap terjaga,
+    // penjualan yang ditolak permanen dilewati (dead letter)
+    public void drain() {
+        mainHandler.post(() -> {
+            if (draining) return;
+            if (!supabaseHelper.isUserSignedIn()) return;
+            draining = true;
+            syncNext();
+        });
+    }
+
+    // Hanya penjualan milik user yang sedang login; token kasir lain tidak boleh dipakai untuk entri ini
+    private void syncNext() {
+        CheckoutJournal.Entry entry = journal.peek(supabaseHelper.getCurrentUserId());
+        if (entry == null) {
+            draining = false;
+            return;
+        }
+        inFlightId = entry.id;
+        // Satu round trip per penjualan (rpc/checkout): header, item, dan stok atomik di server.
+        // Callback Retrofit datang di main thread: journal ditulis (fsync) di thread IO-nya,
+        // antrean baru dilanjutkan di main thread setelah record tersimpan.
+        supabaseHelper.checkoutAsync(entry.toTransaction()).whenComplete((transactionId, error) -> {
+            if (error == null) {
+                journal.commitAsync(entry.id).whenComplete((ignored, ioError) ->
+                        mainHandler.post(() -> complete(entry)));
+            } else if (isPermanentFailure(error)) {
+                String message = Futures.messageOf(error);
+                journal.rejectAsync(entry.id, message).whenComplete((ignored, ioError) ->
+                        mainHandler.post(() -> reject(entry, message)));
+            } else {
+                mainHandler.post(() -> pause(Futures.messageOf(error)));
+            }
+        });
+    }
+
+    // 4xx selain 401 (token di-refresh), 408, dan 429: mengirim ulang payload yang sama akan ditolak lagi.
+    // Error skema (migrasi belum diterapkan) tetap tertunda: penjualan terkirim setelah db push.
+    static boolean isPermanentFailure(Throwable error) {
+        int status = Futures.statusOf(error);
+        if (PostgrestErrors.isSchemaError(error)) return false;
+        return status >= 400 && status < 500 && status != 401 && !RetryPolicy.isRetryableStatus(status);
+    }
+
+    private void complete(CheckoutJournal.Entry entry) {
+        inFlightId = null;
+        failedAttempts = 0;
+        Log.d(TAG, "Sale synced: " + entry.id + ", pending: " + pendingCount());
+        if (listener != null) listener.onSaleSynced(entry.id, pendingCount());
+        syncNext();
+    }
+
+    private void reject(CheckoutJournal.Entry entry, String error) {
+        inFlightId = null;
+        Log.e(TAG, "Sale rejected: " + entry.id + ": " + error);
+        if (listener != null) listener.onSaleRejected(entry.id, error);
+        syncNext();
+    }
+
+    // Error sementara (jaringan, 5xx, 408, 429): coba lagi dengan backoff.
+    // Penjualan membawa id journal sebagai idempotency key sehingga aman diulang
+    private void pause(String error) {
+        inFlightId = null;
+        draining = false;
+        long delay = RETRY_POLICY.delayMillis(failedAttempts++);
+        mainHandler.removeCallbacks(retryTask);
+        mainHandler.postDelayed(retryTask, delay);
+        Log.w(TAG, "Sync paused: " + error + ", retry in " + delay + " ms");
+        if (listener != null) listener.onSyncPaused(error, pendingCount());
+    }
+}
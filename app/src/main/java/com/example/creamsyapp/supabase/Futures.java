@@ -0,0 +1,150 @@
+package com.example.creamsyapp.supabase;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Jembatan Retrofit Call -> CompletableFuture (native sejak API 24) plus timeout dan pembatalan.
+// Future gagal dengan SupabaseException yang pesannya sama dengan error pada callback lama.
+public final class Futures {
+    // orTimeout() baru ada di Java 9, jadi timeout dijadwalkan sendiri
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "futures-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Futures() {
+    }
+
+    // Selesai dengan Response apa pun dari server; gagal hanya untuk error jaringan.
+    // Membatalkan future (cancel/timeout) ikut membatalkan request HTTP.
+    static <T> CompletableFuture<Response<T>> send(Call<T> call) {
+        CompletableFuture<Response<T>> future = new CompletableFuture<>();
+        future.whenComplete((response, error) -> {
+            if (error != null) call.cancel();
+        });
+        call.enqueue(completing(future));
+        return future;
+    }
+
+    static <T> Callback<T> completing(CompletableFuture<Response<T>> future) {
+        return new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+                future.completeExceptionally(new SupabaseException(failureMessage(t), t));
+            }
+        };
+    }
+
+    // Body respons sukses; selain itu gagal dengan "<failurePrefix>: <error body>"
+    static <T> CompletableFuture<T> fetch(Call<T> call, String failurePrefix) {
+        CompletableFuture<Response<T>> sent = send(call);
+        return linked(sent.thenApply(response -> bodyOrThrow(response, failurePrefix)), sent);
+    }
+
+    // Untuk request tanpa body balasan (return=minimal, DELETE)
+    static CompletableFuture<Void> execute(Call<Void> call, String failurePrefix) {
+        CompletableFuture<Response<Void>> sent = send(call);
+        return linked(sent.thenApply(response -> {
+            requireSuccess(response, failurePrefix);
+            return null;
+        }), sent);
+    }
+
+    static <T> T bodyOrThrow(Response<T> response, String failurePrefix) {
+        requireSuccess(response, failurePrefix);
+        if (response.body() == null) throw new SupabaseException(failurePrefix + ": Response body is null");
+        return response.body();
+    }
+
+    static void requireSuccess(Response<?> response, String failurePrefix) {
+        if (response.isSuccessful()) return;
+        try {
+            String errorBody = response.errorBody() != null ? response.errorBody().string() : "Unknown error";
+            throw new SupabaseException(failurePrefix + ": " + errorBody, response.code());
+        } catch (IOException e) {
+            throw new SupabaseException(failurePrefix + ": " + e.getMessage(), response.code());
+        }
+    }
+
+    static <T> CompletableFuture<T> failed(String message) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new SupabaseException(message));
+        return future;
+    }
+
+    // Pembatalan/timeout pada future turunan diteruskan ke future sumber (dan request HTTP-nya)
+    static <T> CompletableFuture<T> linked(CompletableFuture<T> derived, CompletableFuture<?> source) {
+        derived.whenComplete((value, error) -> {
+            if (error != null) source.cancel(false);
+        });
+        return derived;
+    }
+
+    // Gagalkan future dengan TimeoutException bila belum selesai dalam waktu yang diberikan
+    public static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, long timeout, TimeUnit unit) {
+        ScheduledFuture<?> timer = TIMER.schedule(
+                () -> future.completeExceptionally(new TimeoutException("Timed out after " + unit.toMillis(timeout) + " ms")),
+                timeout, unit);
+        future.whenComplete((value, error) -> timer.cancel(false));
+        return future;
+    }
+
+    // true bila future dibatalkan (langsung atau lewat tahap sebelumnya); error null = false
+    public static boolean isCancellation(Throwable error) {
+        return unwrap(error) instanceof CancellationException;
+    }
+
+    // Pesan error untuk ditampilkan/diteruskan ke callback onError
+    public static String messageOf(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof TimeoutException) return "Request timed out";
+        if (cause instanceof CancellationException) return "Request cancelled";
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    // Pesan untuk kegagalan request tanpa respons HTTP yang bisa dipakai (onFailure Retrofit);
+    // selain parse dan I/O berarti kesalahan program, tidak disebut error jaringan
+    static String failureMessage(Throwable t) {
+        String prefix;
+        if (RetryPolicy.isParseFailure(t)) {
+            prefix = "Failed to parse response: ";
+        } else if (t instanceof IOException) {
+            prefix = "Network error: ";
+        } else {
+            prefix = "Request failed: ";
+        }
+        return prefix + t.getMessage();
+    }
+
+    // Kode HTTP dari error server; 0 untuk error jaringan, timeout, atau pembatalan
+    public static int statusOf(Throwable error) {
+        Throwable cause = unwrap(error);
+        return cause instanceof SupabaseException ? ((SupabaseException) cause).getStatusCode() : 0;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
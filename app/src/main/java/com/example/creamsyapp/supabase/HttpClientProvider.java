@@ -0,0 +1,63 @@
+package com.example.creamsyapp.supabase;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Satu OkHttpClient untuk seluruh aplikasi (Retrofit Supabase dan Glide) sehingga pool koneksi,
+// sesi TLS, dan cache DNS dipakai bersama. Klien turunan dibuat lewat newBuilder() agar tetap
+// berbagi pool dan dispatcher.
+public final class HttpClientProvider {
+    private static final String TAG = "HttpClientProvider";
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5L;
+
+    private static OkHttpClient client;
+
+    private HttpClientProvider() {}
+
+    public static synchronized OkHttpClient get() {
+        if (client == null) {
+            client = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .dns(new CachingDns())
+                    .connectTimeout(15, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .writeTimeout(30, TimeUnit.SECONDS)
+                    .build();
+        }
+        return client;
+    }
+
+    // Buka koneksi (DNS + TCP + TLS) ke host lebih awal; respons diabaikan, koneksi tinggal di pool
+    static void preconnect(String url, String apiKey) {
+        Request request = new Request.Builder()
+                .url(url)
+                .header("apikey", apiKey)
+                .head()
+                .build();
+        get().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                Log.d(TAG, "Preconnected to " + call.request().url().host());
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Log.w(TAG, "Preconnect failed: " + e.getMessage());
+            }
+        });
+    }
+}
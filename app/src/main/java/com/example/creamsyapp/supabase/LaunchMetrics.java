@@ -0,0 +1,69 @@
+package com.example.creamsyapp.supabase;
+
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Sampel time-to-first-product per mode launch ("preconnect" / "cold"), disimpan agar bertahan
+// antar proses: setiap launch adalah proses baru. Dipakai scripts/measure_ttfp.sh untuk
+// membandingkan launch dengan dan tanpa preconnect.
+final class LaunchMetrics {
+    static final String MODE_PRECONNECT = "preconnect";
+    static final String MODE_COLD = "cold";
+    private static final int MAX_SAMPLES = 20;
+    private static final String KEY_PREFIX = "ttfp_";
+
+    private LaunchMetrics() {}
+
+    // Tambah satu sampel (ms) untuk mode; sampel tertua dibuang setelah MAX_SAMPLES
+    static void record(SharedPreferences prefs, String mode, long millis) {
+        List<Long> samples = samples(prefs, mode);
+        samples.add(millis);
+        while (samples.size() > MAX_SAMPLES) samples.remove(0);
+        StringBuilder csv = new StringBuilder();
+        for (Long sample : samples) {
+            if (csv.length() > 0) csv.append(',');
+            csv.append(sample);
+        }
+        prefs.edit().putString(KEY_PREFIX + mode, csv.toString()).apply();
+    }
+
+    static List<Long> samples(SharedPreferences prefs, String mode) {
+        return parse(prefs.getString(KEY_PREFIX + mode, null));
+    }
+
+    static void clear(SharedPreferences prefs) {
+        prefs.edit().remove(KEY_PREFIX + MODE_PRECONNECT).remove(KEY_PREFIX + MODE_COLD).apply();
+    }
+
+    static List<Long> parse(String csv) {
+        List<Long> samples = new ArrayList<>();
+        if (csv == null || csv.isEmpty()) return samples;
+        for (String part : csv.split(",")) {
+            try {
+                samples.add(Long.parseLong(part.trim()));
+            } catch (NumberFormatException ignored) {
+                // sampel rusak dilewati
+            }
+        }
+        return samples;
+    }
+
+    // "cold: median 480 ms, p90 610 ms (n=10)"; "cold: no samples" bila kosong
+    static String summary(String mode, List<Long> samples) {
+        if (samples.isEmpty()) return mode + ": no samples";
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        return String.format(Locale.US, "%s: median %d ms, p90 %d ms (n=%d)",
+                mode, percentile(sorted, 50), percentile(sorted, 90), sorted.size());
+    }
+
+    // Nearest-rank percentile atas daftar yang sudah terurut
+    static long percentile(List<Long> sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank - 1)));
+    }
+}
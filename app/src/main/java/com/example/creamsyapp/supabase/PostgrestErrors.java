@@ -0,0 +1,42 @@
+package com.example.creamsyapp.supabase;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Klasifikasi error PostgREST berdasarkan field "code" pada body error
+// ({"code":"42703","message":...}) yang ikut di pesan SupabaseException
+final class PostgrestErrors {
+    private static final Pattern CODE = Pattern.compile("\"code\"\\s*:\\s*\"([^\"]+)\"");
+
+    private PostgrestErrors() {}
+
+    // Kode error dari body respons; null bila tidak ada (error jaringan, body bukan JSON PostgREST)
+    static String codeOf(Throwable error) {
+        if (error == null) return null;
+        Matcher matcher = CODE.matcher(Futures.messageOf(error));
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    // Database belum dimigrasi: kolom, tabel, fungsi, atau unique key untuk on_conflict belum ada.
+    // PGRST2xx = cache skema PostgREST (mis. PGRST202 fungsi, PGRST204 kolom).
+    // Payload yang sama akan diterima setelah migrasi, jadi bukan penolakan permanen.
+    static boolean isSchemaError(Throwable error) {
+        String code = codeOf(error);
+        if (code == null) return false;
+        if (code.startsWith("PGRST2")) return true;
+        switch (code) {
+            case "42703": // undefined_column
+            case "42P10": // tidak ada unique constraint yang cocok dengan ON CONFLICT
+            case "42P01": // undefined_table
+            case "42883": // undefined_function
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // PostgREST meneruskan error Postgres 42703 (undefined_column) sebagai 400
+    static boolean isMissingColumn(Throwable error) {
+        return Futures.statusOf(error) == 400 && "42703".equals(codeOf(error));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.creamsyapp.supabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Helper untuk filter PostgREST yang dipakai lintas request
+final class PostgrestFilters {
+    // Batas jumlah id per filter in.(...) agar URL tetap jauh di bawah batas panjang server/proxy
+    static final int MAX_IN_IDS = 100;
+
+    private PostgrestFilters() {}
+
+    // Bentuk filter in.(id1,id2,...)
+    static String in(List<String> ids) {
+        StringBuilder in = new StringBuilder("in.(");
+        for (int i = 0; i < ids.size(); i++) {
+            in.append(ids.get(i));
+            if (i < ids.size() - 1) in.append(',');
+        }
+        in.append(')');
+        return in.toString();
+    }
+
+    static List<List<String>> chunk(List<String> ids, int size) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += size) {
+            chunks.add(new ArrayList<>(ids.subList(i, Math.min(ids.size(), i + size))));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.creamsyapp.supabase;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.ByteString;
+
+// Upload bertahap dengan protokol TUS (endpoint Supabase Storage /storage/v1/upload/resumable).
+// URL upload disimpan per objek (SharedPreferences di aplikasi), sehingga setelah gagal (atau proses dimulai ulang)
+// upload dilanjutkan dari offset terakhir yang diakui server (HEAD -> Upload-Offset), bukan dari nol.
+// Upload berjalan di executor sendiri dan tidak terikat activity; permintaan ulang untuk objek yang
+// sama selagi berjalan menumpang task yang ada.
+class ResumableUploader {
+    interface Listener {
+        void onProgress(long uploaded, long total);
+        void onComplete();
+        void onError(String error);
+    }
+
+    // Penyimpanan URL upload per objek
+    interface Store {
+        String get(String key);
+        void put(String key, String uploadUrl);
+        void remove(String key);
+    }
+
+    private static final String TAG = "ResumableUploader";
+    private static final String TUS_VERSION = "1.0.0";
+    // Supabase mensyaratkan ukuran chunk tetap 6 MB (kecuali chunk terakhir)
+    static final int CHUNK_SIZE = 6 * 1024 * 1024;
+    private static final int PROGRESS_SEGMENT = 16 * 1024;
+    private static final MediaType OFFSET_OCTET_STREAM = MediaType.parse("application/offset+octet-stream");
+
+    private final OkHttpClient client;
+    private final String endpoint;
+    private final Store store;
+    private final RetryPolicy retryPolicy;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Tempat listener dipanggil (main thread di aplikasi)
+    private final Executor callbackExecutor;
+    private final Map<String, Task> running = new HashMap<>();
+
+    ResumableUploader(OkHttpClient client, String endpoint, Store store, RetryPolicy retryPolicy) {
+        this(client, endpoint, store, retryPolicy, new Handler(Looper.getMainLooper())::post);
+    }
+
+    // endpoint dapat diarahkan ke server pengganti lokal untuk pengujian
+    ResumableUploader(OkHttpClient client, String endpoint, Store store, RetryPolicy retryPolicy,
+                      Executor callbackExecutor) {
+        this.client = client;
+        this.endpoint = endpoint;
+        this.store = store;
+        this.retryPolicy = retryPolicy;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    static Store sharedPreferencesStore(SharedPreferences prefs) {
+        return new Store() {
+            @Override
+            public String get(String key) {
+                return prefs.getString(key, null);
+            }
+
+            @Override
+            public void put(String key, String uploadUrl) {
+                prefs.edit().putString(key, uploadUrl).apply();
+            }
+
+            @Override
+            public void remove(String key) {
+                prefs.edit().remove(key).apply();
+            }
+        };
+    }
+
+    void upload(String bucket, String objectPath, String contentType, byte[] data,
+                String apiKey, String authorization, Listener listener) {
+        String key = bucket + "/" + objectPath + ":" + data.length;
+        synchronized (running) {
+            Task existing = running.get(key);
+            if (existing != null) {
+                existing.listeners.add(listener);
+                return;
+            }
+            Task task = new Task(key, bucket, objectPath, contentType, data, apiKey, authorization);
+            task.listeners.add(listener);
+            running.put(key, task);
+            executor.execute(() -> run(task));
+        }
+    }
+
+    private void run(Task task) {
+        try {
+            String uploadUrl = store.get(task.key);
+            long offset = uploadUrl != null ? fetchOffset(uploadUrl, task) : -1L;
+            if (offset < 0) {
+                uploadUrl = create(task);
+                offset = 0L;
+            } else {
+                Log.d(TAG, "Resuming " + task.objectPath + " at offset " + offset);
+            }
+            task.progress(offset);
+
+            int attempt = 0;
+            while (offset < task.data.length) {
+                int length = (int) Math.min(CHUNK_SIZE, task.data.length - offset);
+                try {
+                    offset = patch(uploadUrl, task, offset, length);
+                    attempt = 0;
+                } catch (RetryableException e) {
+                    if (!retryPolicy.canRetry(attempt)) throw e;
+                    Log.w(TAG, "Chunk failed, retrying: " + e.getMessage());
+                    Thread.sleep(retryPolicy.delayMillis(attempt++));
+                    // Lanjut dari offset yang benar-benar diterima server (bila HEAD juga gagal,
+                    // PATCH berikutnya dengan offset lama akan ditolak 409 dan dicoba lagi)
+                    long acknowledged;
+                    try {
+                        acknowledged = fetchOffset(uploadUrl, task);
+                    } catch (IOException headFailure) {
+                        continue;
+                    }
+                    if (acknowledged < 0) {
+                        // URL upload kedaluwarsa di server: mulai upload baru dari nol
+                        Log.d(TAG, "Upload expired, restarting " + task.objectPath);
+                        uploadUrl = create(task);
+                        acknowledged = 0L;
+                    }
+                    offset = acknowledged;
+                }
+            }
+            store.remove(task.key);
+            finish(task, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(task, "Upload interrupted");
+        } catch (IOException e) {
+            finish(task, e.getMessage());
+        }
+    }
+
+    // POST: buat upload baru, server mengembalikan URL upload di header Location
+    private String create(Task task) throws IOException {
+        Request request = baseRequest(endpoint, task)
+                .header("Upload-Length", String.valueOf(task.data.length))
+                .header("Upload-Metadata", metadata(task))
+                .header("x-upsert", "true")
+                .post(RequestBody.create(null, new byte[0]))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            String location = response.header("Location");
+            if (response.code() != 201 || location == null) {
+                throw new IOException("Create upload failed: " + response.code() + " " + bodyOf(response));
+            }
+            HttpUrl resolved = HttpUrl.get(endpoint).resolve(location);
+            if (resolved == null) throw new IOException("Invalid upload location: " + location);
+            store.put(task.key, resolved.toString());
+            return resolved.toString();
+        }
+    }
+
+    // HEAD: offset yang sudah diterima server; -1 bila upload tidak dikenal/kedaluwarsa
+    private long fetchOffset(String uploadUrl, Task task) throws IOException {
+        Request request = baseRequest(uploadUrl, task).head().build();
+        try (Response response = client.newCall(request).execute()) {
+            String offset = response.header("Upload-Offset");
+            if (response.isSuccessful() && offset != null) return Long.parseLong(offset);
+            if (response.code() == 404 || response.code() == 410) {
+                store.remove(task.key);
+                return -1L;
+            }
+            throw new IOException("Upload status failed: " + response.code());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid Upload-Offset");
+        }
+    }
+
+    // PATCH: kirim satu chunk mulai dari offset; mengembalikan offset baru dari server
+    private long patch(String uploadUrl, Task task, long offset, int length) throws IOException {
+        Request request = baseRequest(uploadUrl, task)
+                .header("Upload-Offset", String.valueOf(offset))
+                .patch(new ChunkBody(task, (int) offset, length))
+                .build();
+        Response response;
+        try {
+            response = client.newCall(request).execute();
+        } catch (IOException e) {
+            throw new RetryableException(e.getMessage());
+        }
+        try {
+            String newOffset = response.header("Upload-Offset");
+            if (response.code() == 204 && newOffset != null) return Long.parseLong(newOffset);
+            if (RetryPolicy.isRetryableStatus(response.code()) || response.code() == 409
+                    || response.code() == 404 || response.code() == 410) {
+                // 409 = offset tidak cocok, 404/410 = upload kedaluwarsa; periksa ulang lewat HEAD
+                throw new RetryableException("Chunk rejected: " + response.code());
+            }
+            throw new IOException("Upload chunk failed: " + response.code() + " " + bodyOf(response));
+        } catch (NumberFormatException e) {
+            throw new RetryableException("Invalid Upload-Offset");
+        } finally {
+            response.close();
+        }
+    }
+
+    private Request.Builder baseRequest(String url, Task task) {
+        return new Request.Builder()
+                .url(url)
+                .header("apikey", task.apiKey)
+                .header("Authorization", task.authorization)
+                .header("Tus-Resumable", TUS_VERSION);
+    }
+
+    private static String metadata(Task task) {
+        return "bucketName " + base64(task.bucket)
+                + ",objectName " + base64(task.objectPath)
+                + ",contentType " + base64(task.contentType)
+                + ",cacheControl " + base64(SupabaseHelper.IMMUTABLE_CACHE_SECONDS);
+    }
+
+    private static String base64(String value) {
+        return ByteString.encodeUtf8(value).base64();
+    }
+
+    private static String bodyOf(Response response) {
+        try {
+            return response.body() != null ? response.body().string() : "";
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private void finish(Task task, String error) {
+        List<Listener> listeners;
+        synchronized (running) {
+            running.remove(task.key);
+            listeners = new ArrayList<>(task.listeners);
+        }
+        callbackExecutor.execute(() -> {
+            for (Listener l : listeners) {
+                if (error == null) {
+                    l.onComplete();
+                } else {
+                    l.onError(error);
+                }
+            }
+        });
+    }
+
+    private class Task {
+        final String key;
+        final String bucket;
+        final String objectPath;
+        final String contentType;
+        final byte[] data;
+        final String apiKey;
+        final String authorization;
+        final List<Listener> listeners = new ArrayList<>();
+
+        Task(String key, String bucket, String objectPath, String contentType, byte[] data,
+             String apiKey, String authorization) {
+            this.key = key;
+            this.bucket = bucket;
+            this.objectPath = objectPath;
+            this.contentType = contentType;
+            this.data = data;
+            this.apiKey = apiKey;
+            this.authorization = authorization;
+        }
+
+        void progress(long uploaded) {
+            List<Listener> listeners;
+            synchronized (running) {
+                listeners = new ArrayList<>(this.listeners);
+            }
+            long total = data.length;
+            callbackExecutor.execute(() -> {
+                for (Listener l : listeners) l.onProgress(uploaded, total);
+            });
+        }
+    }
+
+    // Body satu chunk yang ditulis per segmen agar progres terlapor selama chunk terkirim
+    private static class ChunkBody extends RequestBody {
+        private final Task task;
+        private final int offset;
+        private final int length;
+
+        ChunkBody(Task task, int offset, int length) {
+            this.task = task;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return OFFSET_OCTET_STREAM;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            int written = 0;
+            while (written < length) {
+                int count = Math.min(PROGRESS_SEGMENT, length - written);
+                sink.write(task.data, offset + written, count);
+                sink.flush();
+                written += count;
+                task.progress(offset + written);
+            }
+        }
+    }
+
+    private static class RetryableException extends IOException {
+        RetryableException(String message) {
+            super(message);
+        }
+    }
+}
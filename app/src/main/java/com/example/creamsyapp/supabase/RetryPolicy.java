@@ -0,0 +1,69 @@
+package com.example.creamsyapp.supabase;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.util.Random;
+
+// Exponential backoff dengan full jitter untuk request tulis yang idempoten.
+// Hanya aman dipakai bila request membawa idempotency key (client_ref) yang dideduplikasi server.
+class RetryPolicy {
+    static final RetryPolicy WRITES = new RetryPolicy(500L, 8_000L, 4);
+
+    private final long baseMillis;
+    private final long maxMillis;
+    private final int maxRetries;
+    private final Random random = new Random();
+
+    RetryPolicy(long baseMillis, long maxMillis, int maxRetries) {
+        this.baseMillis = baseMillis;
+        this.maxMillis = maxMillis;
+        this.maxRetries = maxRetries;
+    }
+
+    boolean canRetry(int attempt) {
+        return attempt < maxRetries;
+    }
+
+    // Jeda acak di [0, min(max, base * 2^attempt)]
+    synchronized long delayMillis(int attempt) {
+        long ceiling = Math.min(maxMillis, baseMillis << Math.min(attempt, 20));
+        return (long) (random.nextDouble() * ceiling);
+    }
+
+    // Timeout, rate limit, dan error server sementara layak diulang; 4xx lainnya tidak
+    static boolean isRetryableStatus(int code) {
+        return code == 408 || code == 429 || (code >= 500 && code <= 599);
+    }
+
+    // Hanya kegagalan I/O yang layak diulang; respons yang gagal diparse akan gagal lagi dengan isi yang sama
+    static boolean isRetryableFailure(Throwable t) {
+        return t instanceof IOException && !isParseFailure(t);
+    }
+
+    // Respons diterima tetapi isinya bukan JSON yang valid atau bentuknya tidak sesuai model.
+    // IllegalStateException hanya dihitung bila membungkus error parse atau dilempar JsonReader/TypeAdapter
+    // (token yang tidak diharapkan); selain itu kesalahan program, bukan "respons buruk".
+    static boolean isParseFailure(Throwable t) {
+        if (t instanceof JsonParseException || t instanceof MalformedJsonException) return true;
+        if (!(t instanceof IllegalStateException)) return false;
+        Throwable cause = t.getCause();
+        if (cause != null && cause != t && isParseFailure(cause)) return true;
+        return thrownByGson(t);
+    }
+
+    // Frame teratas berada di Gson (mis. JsonReader.beginObject) atau di TypeAdapter milik model
+    private static boolean thrownByGson(Throwable t) {
+        StackTraceElement[] stack = t.getStackTrace();
+        if (stack.length == 0) return false;
+        String className = stack[0].getClassName();
+        if (className.startsWith("com.google.gson.")) return true;
+        try {
+            return TypeAdapter.class.isAssignableFrom(Class.forName(className, false, RetryPolicy.class.getClassLoader()));
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.creamsyapp.supabase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Penggabung request identik yang sedang berjalan (single-flight).
+// Panggilan dengan key sama selama request pertama belum selesai tidak membuat request baru;
+// semua pemanggil menerima hasil yang sama.
+class SingleFlight<T> {
+    private final Map<String, CompletableFuture<T>> inFlight = new HashMap<>();
+    private final AtomicLong coalesced;
+
+    SingleFlight(AtomicLong coalescedCounter) {
+        this.coalesced = coalescedCounter;
+    }
+
+    // Setiap pemanggil menerima future turunan sendiri, sehingga membatalkannya (atau timeout)
+    // tidak ikut menggagalkan request bersama yang masih ditunggu pemanggil lain.
+    CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> loader) {
+        CompletableFuture<T> shared;
+        boolean owner = false;
+        synchronized (inFlight) {
+            shared = inFlight.get(key);
+            if (shared != null) {
+                coalesced.incrementAndGet();
+            } else {
+                shared = new CompletableFuture<>();
+                inFlight.put(key, shared);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            CompletableFuture<T> result = shared;
+            CompletableFuture<T> loaded;
+            try {
+                loaded = loader.get();
+            } catch (RuntimeException e) {
+                loaded = new CompletableFuture<>();
+                loaded.completeExceptionally(e);
+            }
+            loaded.whenComplete((value, error) -> {
+                synchronized (inFlight) {
+                    inFlight.remove(key, result);
+                }
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+        return shared.thenApply(value -> value);
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.creamsyapp.supabase;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+// Write-behind untuk perubahan stok: delta per produk dari beberapa penjualan berturut-turut
+// dikumpulkan dan dikirim sebagai satu adjustStock setelah jendela waktu habis atau setelah N penjualan.
+// Delta yang belum dikonfirmasi server disimpan per user di disk (future dari record() selesai setelah
+// tersimpan), sehingga journal checkout boleh di-commit tanpa menunggu flush: proses mati atau logout
+// tidak menghilangkan delta; sisa delta dikirim saat user yang sama aktif lagi.
+// Penulisan ke disk berjalan berurutan di satu thread IO, tidak pernah di main thread.
+public class StockWriteBehind {
+    private static final String TAG = "StockWriteBehind";
+    static final long WINDOW_MILLIS = 5_000L;
+    static final int MAX_SALES = 10;
+    // Jumlah id penjualan terakhir yang diingat untuk menolak record() ganda. Journal hanya
+    // mengulang entri terdepannya, jadi pengulangan selalu mengenai penjualan yang baru dicatat.
+    static final int MAX_RECORDED_SALES = 100;
+
+    // Kirim satu batch ke server (SupabaseHelper.adjustStock)
+    interface Sender {
+        void send(Map<String, Integer> deltas, String idempotencyKey, SupabaseHelper.StockCallback callback);
+    }
+
+    // Penyimpanan state per user (dipanggil di thread IO); durable = tulis sinkron sebelum kembali
+    interface Store {
+        String read(String owner);
+        void write(String owner, String state, boolean durable);
+    }
+
+    // Penjadwal tugas (main thread di aplikasi)
+    interface Scheduler {
+        void post(Runnable task, long delayMillis);
+        void cancel(Runnable task);
+    }
+
+    // Isi yang disimpan ke disk
+    static class State {
+        Map<String, Integer> deltas = new LinkedHashMap<>();
+        int sales;
+        // Batch yang sedang/gagal dikirim beserta idempotency key-nya
+        Map<String, Integer> batch;
+        String batchKey;
+        // Id entri journal yang deltanya sudah dicatat (terlama di depan)
+        List<String> recordedSales = new ArrayList<>();
+
+        boolean isEmpty() {
+            return deltas.isEmpty() && batch == null;
+        }
+    }
+
+    private final Sender sender;
+    private final Scheduler scheduler;
+    private final Executor ioExecutor;
+    private final Gson gson = new Gson();
+    private Store store;
+    // State yang sudah diantre ke thread IO tetapi belum tertulis (null = dihapus); load() membaca dari sini dulu
+    private final Map<String, String> unwritten = new HashMap<>();
+    private final List<Runnable> flushWaiters = new ArrayList<>();
+    private final Runnable flushTask = () -> flush(null);
+    // User pemilik delta di memori; null = tidak ada sesi
+    private String owner;
+    private State state = new State();
+    private boolean flushing = false;
+
+    StockWriteBehind(Sender sender) {
+        this(sender, mainThreadScheduler(), Executors.newSingleThreadExecutor());
+    }
+
+    StockWriteBehind(Sender sender, Scheduler scheduler, Executor ioExecutor) {
+        this.sender = sender;
+        this.scheduler = scheduler;
+        this.ioExecutor = ioExecutor;
+    }
+
+    // Aktifkan penyimpanan di disk (dipanggil dari SupabaseHelper.init)
+    synchronized void setStore(Store store) {
+        this.store = store;
+    }
+
+    static Store sharedPreferencesStore(SharedPreferences prefs) {
+        return new Store() {
+            @Override
+            public String read(String owner) {
+                return prefs.getString(owner, null);
+            }
+
+            @Override
+            public void write(String owner, String state, boolean durable) {
+                SharedPreferences.Editor editor = state == null ? prefs.edit().remove(owner) : prefs.edit().putString(owner, state);
+                if (durable) {
+                    editor.commit();
+                } else {
+                    editor.apply();
+                }
+            }
+        };
+    }
+
+    // Pakai delta milik userId (login/restore sesi); sisa delta dari sesi sebelumnya langsung dikirim
+    public void attach(String userId) {
+        synchronized (this) {
+            if (userId == null || userId.equals(owner)) return;
+            detachLocked();
+            owner = userId;
+            state = load(userId);
+            if (state.isEmpty()) return;
+            Log.d(TAG, "Restored pending stock deltas for " + (state.deltas.size()
+                    + (state.batch != null ? state.batch.size() : 0)) + " products");
+        }
+        flush(null);
+    }
+
+    // Lepas delta dari memori saat sesi berakhir; yang tersimpan di disk tidak dibuang
+    public synchronized void detach() {
+        detachLocked();
+    }
+
+    // Catat delta stok satu penjualan milik userId (product_id -> delta, negatif untuk barang terjual).
+    // saleId = id entri journal: bila penjualan yang sama dikirim ulang (proses mati sebelum commit,
+    // atau engine mengulang entri), deltanya tidak dicatat dua kali. Future selesai setelah delta tersimpan di disk.
+    public synchronized CompletableFuture<Void> record(String userId, String saleId, Map<String, Integer> deltas) {
+        if (deltas == null || deltas.isEmpty()) return CompletableFuture.completedFuture(null);
+        if (userId != null && !userId.equals(owner)) {
+            detachLocked();
+            owner = userId;
+            state = load(userId);
+        }
+        if (state.recordedSales.contains(saleId)) {
+            Log.d(TAG, "Stock deltas already recorded for sale " + saleId);
+            return CompletableFuture.completedFuture(null);
+        }
+        state.recordedSales.add(saleId);
+        while (state.recordedSales.size() > MAX_RECORDED_SALES) state.recordedSales.remove(0);
+        mergeInto(state.deltas, deltas);
+        state.sales++;
+        CompletableFuture<Void> saved = save(true);
+        if (state.sales >= MAX_SALES) {
+            scheduler.cancel(flushTask);
+            scheduler.post(flushTask, 0L);
+        } else if (state.sales == 1) {
+            scheduler.post(flushTask, WINDOW_MILLIS);
+        }
+        return saved;
+    }
+
+    public synchronized boolean hasPending() {
+        return !state.isEmpty() || flushing;
+    }
+
+    // Kirim semua delta yang terkumpul; onDone dipanggil setelah tidak ada lagi yang tertunda atau kirim gagal.
+    // Batch yang gagal disimpan utuh bersama key-nya dan dikirim ulang apa adanya, sehingga bila
+    // percobaan sebelumnya ternyata sudah sampai ke server, stok tidak dikurangi dua kali.
+    public void flush(Runnable onDone) {
+        Map<String, Integer> batch;
+        String key;
+        String batchOwner;
+        synchronized (this) {
+            scheduler.cancel(flushTask);
+            if (onDone != null) flushWaiters.add(onDone);
+            if (flushing) return;
+            if (owner == null || state.isEmpty()) {
+                notifyWaiters();
+                return;
+            }
+            if (state.batch == null) {
+                // Batch disimpan dengan key-nya sebelum dikirim: setelah proses mati, batch yang sama
+                // dikirim ulang dengan key yang sama
+                state.batch = new LinkedHashMap<>(state.deltas);
+                state.batchKey = UUID.randomUUID().toString();
+                state.deltas.clear();
+                state.sales = 0;
+                save(false);
+            }
+            batch = state.batch;
+            key = state.batchKey;
+            batchOwner = owner;
+            flushing = true;
+        }
+
+        Log.d(TAG, "Flushing stock deltas for " + batch.size() + " products");
+        sender.send(batch, key, new SupabaseHelper.StockCallback() {
+            @Override
+            public void onSuccess(Map<String, Integer> stockById, List<String> notUpdated) {
+                if (!notUpdated.isEmpty()) {
+                    Log.w(TAG, "Stock not updated for products: " + notUpdated);
+                }
+                boolean more;
+                synchronized (StockWriteBehind.this) {
+                    flushing = false;
+                    if (batchOwner.equals(owner)) {
+                        state.batch = null;
+                        state.batchKey = null;
+                        save(false);
+                    } else {
+                        // Sesi sudah berganti selama flush; hapus batch dari state tersimpan pemiliknya
+                        State stored = load(batchOwner);
+                        if (key.equals(stored.batchKey)) {
+                            stored.batch = null;
+                            stored.batchKey = null;
+                            write(batchOwner, stored, false);
+                        }
+                    }
+                    more = !state.isEmpty() && owner != null;
+                    if (!more) notifyWaiters();
+                }
+                // Delta yang masuk selama flush berjalan ikut dikirim sebelum waiter dilepas
+                if (more) flush(null);
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, "Stock flush failed, will retry: " + error);
+                synchronized (StockWriteBehind.this) {
+                    flushing = false;
+                    notifyWaiters();
+                    if (owner != null) scheduler.post(flushTask, WINDOW_MILLIS);
+                }
+            }
+        });
+    }
+
+    private void detachLocked() {
+        scheduler.cancel(flushTask);
+        owner = null;
+        state = new State();
+    }
+
+    private State load(String userId) {
+        if (store == null) return new State();
+        String json = unwritten.containsKey(userId) ? unwritten.get(userId) : store.read(userId);
+        if (json == null) return new State();
+        try {
+            State loaded = gson.fromJson(json, State.class);
+            if (loaded == null) return new State();
+            if (loaded.deltas == null) loaded.deltas = new LinkedHashMap<>();
+            if (loaded.recordedSales == null) loaded.recordedSales = new ArrayList<>();
+            return loaded;
+        } catch (JsonSyntaxException e) {
+            Log.w(TAG, "Discarding unreadable stock state: " + e.getMessage());
+            return new State();
+        }
+    }
+
+    private CompletableFuture<Void> save(boolean durable) {
+        if (owner == null) return CompletableFuture.completedFuture(null);
+        return write(owner, state, durable);
+    }
+
+    // State diserialisasi di bawah lock; penulisan ke store diantre ke thread IO sesuai urutan perubahan
+    private CompletableFuture<Void> write(String userId, State value, boolean durable) {
+        if (store == null) return CompletableFuture.completedFuture(null);
+        // Id penjualan tetap disimpan setelah batch terkirim agar record() ulang tetap dikenali
+        boolean blank = value.isEmpty() && value.recordedSales.isEmpty();
+        String json = blank ? null : gson.toJson(value);
+        Store target = store;
+        unwritten.put(userId, json);
+        return CompletableFuture.runAsync(() -> {
+            target.write(userId, json, durable);
+            synchronized (this) {
+                unwritten.remove(userId, json);
+            }
+        }, ioExecutor);
+    }
+
+    private void notifyWaiters() {
+        List<Runnable> waiters = new ArrayList<>(flushWaiters);
+        flushWaiters.clear();
+        for (Runnable r : waiters) scheduler.post(r, 0L);
+    }
+
+    private static Scheduler mainThreadScheduler() {
+        Handler handler = new Handler(Looper.getMainLooper());
+        return new Scheduler() {
+            @Override
+            public void post(Runnable task, long delayMillis) {
+                handler.postDelayed(task, delayMillis);
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+                handler.removeCallbacks(task);
+            }
+        };
+    }
+
+    private static void mergeInto(Map<String, Integer> target, Map<String, Integer> deltas) {
+        for (Map.Entry<String, Integer> entry : deltas.entrySet()) {
+            int merged = target.getOrDefault(entry.getKey(), 0) + entry.getValue();
+            if (merged == 0) {
+                target.remove(entry.getKey());
+            } else {
+                target.put(entry.getKey(), merged);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.creamsyapp.supabase;
+
+import com.example.creamsyapp.product.IceCreamProduct;
+import com.example.creamsyapp.supabase.api.SupabaseService;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+// Menghapus object di folder Storage milik user yang tidak lagi dirujuk oleh products.image_url
+// maupun image_sizes (produk aktif). Object yang lebih muda dari masa tenggang (dihitung dari updated_at)
+// dibiarkan, karena bisa jadi baru diupload dan produknya belum disimpan; upload yang menumpang object
+// lama (dedup hash) menimpanya ulang agar umurnya ikut diperbarui (lihat SupabaseHelper.whenObjectMissing).
+// Rujukan dibaca ulang sebelum setiap batch delete, dan tidak ada yang dihapus bila daftar rujukan gagal
+// dibaca lengkap. Bersifat blocking; jalankan di thread background.
+class StorageGarbageCollector {
+    static final long GRACE_PERIOD_MILLIS = 24 * 60 * 60_000L;
+    private static final int LIST_PAGE_SIZE = 1000;
+    private static final int DELETE_BATCH_SIZE = 100;
+    // Per halaman rujukan produk; halaman dibaca sampai kosong, jadi aman walau max-rows server lebih kecil
+    private static final int PRODUCTS_PAGE_SIZE = 500;
+
+    private final SupabaseService service;
+    private final String apiKey;
+    private final String bucket;
+    private final String publicUrlPrefix;
+
+    StorageGarbageCollector(SupabaseService service, String apiKey, String bucket, String publicUrlPrefix) {
+        this.service = service;
+        this.apiKey = apiKey;
+        this.bucket = bucket;
+        this.publicUrlPrefix = publicUrlPrefix;
+    }
+
+    // Mengembalikan jumlah object yang dihapus
+    int collect(String authorization, String userId) throws IOException {
+        Set<String> referenced = referencedPaths(authorization, userId);
+        long cutoff = System.currentTimeMillis() - GRACE_PERIOD_MILLIS;
+
+        List<String> orphans = new ArrayList<>();
+        for (int offset = 0; ; offset += LIST_PAGE_SIZE) {
+            List<SupabaseService.StorageObject> page = execute(service.listObjects(apiKey, authorization, bucket,
+                    new SupabaseService.ListObjectsRequest(userId, LIST_PAGE_SIZE, offset)));
+            for (SupabaseService.StorageObject object : page) {
+                if (object.getId() == null) continue; // folder
+                String path = userId + "/" + object.getName();
+                if (referenced.contains(path)) continue;
+                long modifiedAt = Math.max(parseTimestamp(object.getCreatedAt()), parseTimestamp(object.getUpdatedAt()));
+                if (modifiedAt < 0 || modifiedAt > cutoff) continue;
+                orphans.add(path);
+            }
+            if (page.size() < LIST_PAGE_SIZE) break;
+        }
+
+        int removed = 0;
+        for (List<String> candidates : PostgrestFilters.chunk(orphans, DELETE_BATCH_SIZE)) {
+            // Produk bisa saja baru disimpan dengan salah satu object ini sejak daftar rujukan pertama dibaca
+            Set<String> current = referencedPaths(authorization, userId);
+            List<String> batch = new ArrayList<>();
+            for (String path : candidates) {
+                if (!current.contains(path)) batch.add(path);
+            }
+            if (batch.isEmpty()) continue;
+            execute(service.deleteObjects(apiKey, authorization, bucket, new SupabaseService.DeleteObjectsRequest(batch)));
+            removed += batch.size();
+        }
+        return removed;
+    }
+
+    // Semua path yang dirujuk produk aktif; IOException (tanpa hasil parsial) bila ada halaman yang gagal
+    private Set<String> referencedPaths(String authorization, String userId) throws IOException {
+        Set<String> paths = new HashSet<>();
+        String lastId = null;
+        while (true) {
+            List<IceCreamProduct> page = execute(service.getProductImageRefs(apiKey, authorization,
+                    "eq." + userId, "is.null", lastId != null ? "gt." + lastId : null,
+                    "id,image_url,image_sizes", "id.asc", PRODUCTS_PAGE_SIZE));
+            if (page == null) throw new IOException("Empty products response");
+            if (page.isEmpty()) break;
+            for (IceCreamProduct product : page) {
+                addPath(paths, product.getImageUrl());
+                if (product.getImageSizes() != null) {
+                    for (String variantUrl : product.getImageSizes().values()) addPath(paths, variantUrl);
+                }
+            }
+            String pageLastId = page.get(page.size() - 1).getId();
+            if (pageLastId == null) throw new IOException("Products page without id");
+            lastId = pageLastId;
+        }
+        return paths;
+    }
+
+    private void addPath(Set<String> paths, String url) {
+        if (url != null && url.startsWith(publicUrlPrefix)) {
+            paths.add(url.substring(publicUrlPrefix.length()));
+        }
+    }
+
+    private static <T> T execute(Call<T> call) throws IOException {
+        Response<T> response = call.execute();
+        if (!response.isSuccessful()) {
+            String errorBody = response.errorBody() != null ? response.errorBody().string() : "Unknown error";
+            throw new IOException(response.code() + " " + errorBody);
+        }
+        return response.body();
+    }
+
+    // created_at Storage: "2024-05-01T10:20:30.123Z" atau "+00:00"; -1 bila tidak dikenali
+    private static long parseTimestamp(String value) {
+        if (value == null || value.length() < 19) return -1L;
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return sdf.parse(value.substring(0, 19)).getTime();
+        } catch (ParseException e) {
+            return -1L;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.creamsyapp.supabase;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+import okhttp3.ResponseBody;
+
+// Decoder array JSON per elemen dengan JsonReader. Berbeda dengan GsonConverterFactory yang membentuk
+// seluruh List sebelum callback, setiap elemen langsung diteruskan ke sink sehingga heap puncak
+// hanya sebesar satu batch, bukan seluruh body respons.
+final class StreamingJsonArray {
+    interface ElementSink<T> {
+        void accept(T element);
+    }
+
+    private StreamingJsonArray() {}
+
+    // Mengembalikan jumlah elemen yang didecode. Body tidak ditutup di sini.
+    static <T> int decode(ResponseBody body, Gson gson, Class<T> type, ElementSink<T> sink) throws IOException {
+        TypeAdapter<T> adapter = gson.getAdapter(type);
+        JsonReader reader = gson.newJsonReader(body.charStream());
+        int count = 0;
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            T element = adapter.read(reader);
+            if (element != null) {
+                sink.accept(element);
+                count++;
+            }
+        }
+        reader.endArray();
+        return count;
+    }
+}
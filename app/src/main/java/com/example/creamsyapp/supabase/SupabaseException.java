@@ -0,0 +1,26 @@
+package com.example.creamsyapp.supabase;
+
+// Kegagalan request Supabase pada API berbasis future; pesannya sama dengan yang diterima
+// callback onError (mis. "Failed to load products: ..." atau "Network error: ...").
+// statusCode berisi kode HTTP bila server membalas dengan error, 0 bila request tidak sampai/tidak dibalas.
+public class SupabaseException extends RuntimeException {
+    private final int statusCode;
+
+    public SupabaseException(String message) {
+        this(message, 0);
+    }
+
+    public SupabaseException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public SupabaseException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
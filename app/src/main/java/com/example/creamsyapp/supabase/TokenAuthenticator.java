@@ -0,0 +1,40 @@
+package com.example.creamsyapp.supabase;
+
+import okhttp3.Authenticator;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.Route;
+
+// Menangani 401 dari Supabase: refresh token sekali (single-flight di SupabaseHelper) lalu ulangi
+// request dengan access token baru. Request lain yang kena 401 bersamaan menunggu refresh yang sama.
+class TokenAuthenticator implements Authenticator {
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final SupabaseHelper supabaseHelper;
+
+    TokenAuthenticator(SupabaseHelper supabaseHelper) {
+        this.supabaseHelper = supabaseHelper;
+    }
+
+    @Override
+    public Request authenticate(Route route, Response response) {
+        // Endpoint auth sendiri tidak boleh memicu refresh (hindari loop)
+        if (response.request().url().encodedPath().startsWith("/auth/v1/")) return null;
+        if (responseCount(response) >= MAX_ATTEMPTS) return null;
+
+        String failedAuthorization = response.request().header("Authorization");
+        if (failedAuthorization == null) return null;
+
+        String fresh = supabaseHelper.refreshSessionBlocking(failedAuthorization);
+        if (fresh == null) return null;
+        return response.request().newBuilder()
+                .header("Authorization", fresh)
+                .build();
+    }
+
+    private static int responseCount(Response response) {
+        int count = 1;
+        while ((response = response.priorResponse()) != null) count++;
+        return count;
+    }
+}
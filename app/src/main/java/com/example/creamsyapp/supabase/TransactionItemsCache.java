@@ -0,0 +1,38 @@
+package com.example.creamsyapp.supabase;
+
+import android.util.LruCache;
+
+import com.example.creamsyapp.product.TransactionItem;
+
+import java.util.Collections;
+import java.util.List;
+
+// Cache LRU item per transaksi. Item transaksi yang sudah tersimpan tidak pernah berubah,
+// jadi entri tidak perlu divalidasi ulang; cukup dibatasi jumlahnya.
+// Daftar kosong tidak disimpan: item bisa saja belum tertulis (alur checkout lama menulis header dulu).
+class TransactionItemsCache {
+    private static final int MAX_TRANSACTIONS = 300;
+
+    private final LruCache<String, List<TransactionItem>> cache = new LruCache<>(MAX_TRANSACTIONS);
+
+    List<TransactionItem> get(String transactionId) {
+        return transactionId != null ? cache.get(transactionId) : null;
+    }
+
+    void put(String transactionId, List<TransactionItem> items) {
+        if (transactionId == null || items == null || items.isEmpty()) return;
+        cache.put(transactionId, Collections.unmodifiableList(items));
+    }
+
+    boolean contains(String transactionId) {
+        return get(transactionId) != null;
+    }
+
+    void remove(String transactionId) {
+        if (transactionId != null) cache.remove(transactionId);
+    }
+
+    void clear() {
+        cache.evictAll();
+    }
+}
@@ -2,21 +2,26 @@ package com.example.creamsyapp.supabase.api;
 
 import com.example.creamsyapp.product.IceCreamProduct;
 import com.example.creamsyapp.product.Transaction;
+import com.example.creamsyapp.product.TransactionItem;
 
 import java.util.List;
 import java.util.Map;
 
 import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
 import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.HTTP;
 import retrofit2.http.Header;
 import retrofit2.http.PATCH;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 public interface SupabaseService {
     // Autentikasi
@@ -27,12 +32,38 @@ public interface SupabaseService {
     @POST("auth/v1/token?grant_type=refresh_token")
     Call<AuthResponse> refreshToken(@Header("apikey") String apiKey, @Body RefreshRequest request);
 
-    // Produk
+    // Produk (If-None-Match opsional; null = tanpa header, 304 bila katalog tidak berubah)
     @GET("rest/v1/products")
     Call<List<IceCreamProduct>> getProducts(
             @Header("apikey") String apiKey,
             @Header("Authorization") String authorization,
+            @Header("If-None-Match") String ifNoneMatch,
             @Query("user_id") String userId,
+            @Query("deleted_at") String deletedFilter,
+            @Query("select") String select,
+            @Query("order") String order
+    );
+
+    // Rujukan gambar produk aktif untuk garbage collector Storage, berhalaman keyset (id=gt.<id terakhir>)
+    @GET("rest/v1/products")
+    Call<List<IceCreamProduct>> getProductImageRefs(
+            @Header("apikey") String apiKey,
+            @Header("Authorization") String authorization,
+            @Query("user_id") String userId,
+            @Query("deleted_at") String deletedFilter,
+            @Query("id") String idFilter,
+            @Query("select") String select,
+            @Query("order") String order,
+            @Query("limit") int limit
+    );
+
+    // Sinkronisasi delta: baris yang berubah sejak watermark (updated_at=gt.<ts>), termasuk tombstone
+    @GET("rest/v1/products")
+    Call<List<IceCreamProduct>> getProductChanges(
+            @Header("apikey") String apiKey,
+            @Header("Authorization") String authorization,
+            @Query("user_id") String userId,
+            @Query("updated_at") String updatedAfter,
             @Query("select") String select,
             @Query("order") String order
     );
@@ -55,7 +86,20 @@ public interface SupabaseService {
             @Body Map<String, Object> productData
     );
 
-    // PERBAIKAN: Gunakan @Query untuk id
+    // Soft delete massal: PATCH deleted_at untuk id=in.(...) yang belum terhapus; dengan
+    // return=representation server mengembalikan baris yang benar-benar berubah (select=id)
+    @PATCH("rest/v1/products")
+    Call<List<IceCreamProduct>> softDeleteProducts(
+            @Header("apikey") String apiKey,
+            @Header("Authorization") String authorization,
+            @Header("Prefer") String prefer,
+            @Query("id") String idFilter,
+            @Query("deleted_at") String deletedFilter,
+            @Query("select") String select,
+            @Body Map<String, Object> tombstone
+    );
+
+    // Hard delete; aplikasi memakai soft delete (PATCH deleted_at) agar tombstone ikut tersinkron
     @DELETE("rest/v1/products")
     Call<Void> deleteProduct(
             @Header("apikey") String apiKey,
@@ -73,26 +117,79 @@ public interface SupabaseService {
             @Query("order") String order
     );
 
+    // Satu halaman riwayat dengan paginasi keyset (or=(timestamp.lt.X,and(timestamp.eq.X,id.lt.Y)))
+    @GET("rest/v1/transactions")
+    Call<List<Transaction>> getTransactionsPage(
+            @Header("apikey") String apiKey,
+            @Header("Authorization") String authorization,
+            @Query("user_id") String userId,
+            @Query("select") String select,
+            @Query("order") String order,
+            @Query("or") String keysetFilter,
+            @Query("limit") int limit
+    );
+
+    // Sama seperti getTransactionsPage, tetapi body tidak di-buffer agar bisa didecode per elemen
+    @Streaming
+    @GET("rest/v1/transactions")
+    Call<ResponseBody> streamTransactionsPage(
+            @Header("apikey") String apiKey,
+            @Header("Authorization") String authorization,
+            @Query("user_id") String userId,
+            @Query("select") String select,
+            @Query("order") String order,
+            @Query("or") String keysetFilter,
+            @Query("limit") int limit
+    );
+
+    // Upsert idempoten pada kolom unik client_ref (on_conflict=client_ref) agar retry tidak menggandakan transaksi
     @POST("rest/v1/transactions")
     Call<Transaction> addTransaction(
             @Header("apikey") String apiKey,
             @Header("Authorization") String authorization,
             @Header("Prefer") String prefer,
             @Header("Accept") String accept,
+            @Query("on_conflict") String onConflict,
             @Body Map<String, Object> transactionData
     );
 
+    // Upsert idempoten pada unique (transaction_id, product_id)
     @POST("rest/v1/transaction_items")
     Call<Void> addTransactionItems(
             @Header("apikey") String apiKey,
             @Header("Authorization") String authorization,
             @Header("Prefer") String prefer,
+            @Query("on_conflict") String onConflict,
             @Body List<Map<String, Object>> items
     );
 
+    // Checkout atomik dalam satu round trip: header, item, dan pengurangan stok dijalankan
+    // oleh fungsi Postgres public.checkout(p_client_ref, p_total, p_amount_paid, p_change, p_items jsonb)
+    // yang mengembalikan {"transaction_id": ...}. user_id diambil dari auth.uid() di server.
+    // p_client_ref unik per penjualan: bila sudah pernah tersimpan, fungsi mengembalikan transaksi lama.
+    // Didefinisikan di supabase/migrations/20261017000200_checkout_rpc.sql.
+    @POST("rest/v1/rpc/checkout")
+    Call<CheckoutResult> checkout(
+            @Header("apikey") String apiKey,
+            @Header("Authorization") String authorization,
+            @Body Map<String, Object> payload
+    );
+
+    // Pengurangan/penambahan stok massal dalam satu request. Fungsi Postgres
+    // public.adjust_stock(p_client_ref text, p_items jsonb) menerima [{"id": ..., "delta": -2}, ...],
+    // menjalankan stock = stock + delta per baris, dan mengembalikan baris yang berubah (id, stock).
+    // p_client_ref dicatat server; panggilan ulang dengan key yang sama tidak mengubah stok lagi.
+    // Didefinisikan di supabase/migrations/20261017000300_adjust_stock_rpc.sql.
+    @POST("rest/v1/rpc/adjust_stock")
+    Call<List<StockRow>> adjustStock(
+            @Header("apikey") String apiKey,
+            @Header("Authorization") String authorization,
+            @Body Map<String, Object> payload
+    );
+
     // Transaction items fetch with embedded product
     @GET("rest/v1/transaction_items")
-    Call<List<Map<String, Object>>> getTransactionItems(
+    Call<List<TransactionItem>> getTransactionItems(
             @Header("apikey") String apiKey,
             @Header("Authorization") String authorization,
             @Query("transaction_id") String transactionId,
@@ -123,11 +220,40 @@ public interface SupabaseService {
             @Header("apikey") String apiKey,
             @Header("Authorization") String authorization,
             @Header("Content-Type") String contentType,
+            @Header("cache-control") String cacheControl,
+            @Header("x-upsert") String upsert,
             @Path("bucket") String bucket,
             @Path(value = "path", encoded = true) String objectPath,
             @Body RequestBody body
     );
 
+    // Storage: cek keberadaan object (200 = ada)
+    @HEAD("storage/v1/object/{bucket}/{path}")
+    Call<Void> headObject(
+            @Header("apikey") String apiKey,
+            @Header("Authorization") String authorization,
+            @Path("bucket") String bucket,
+            @Path(value = "path", encoded = true) String objectPath
+    );
+
+    // Storage: daftar object di bawah prefix (folder user), berhalaman limit/offset
+    @POST("storage/v1/object/list/{bucket}")
+    Call<List<StorageObject>> listObjects(
+            @Header("apikey") String apiKey,
+            @Header("Authorization") String authorization,
+            @Path("bucket") String bucket,
+            @Body ListObjectsRequest request
+    );
+
+    // Storage: hapus banyak object sekaligus
+    @HTTP(method = "DELETE", path = "storage/v1/object/{bucket}", hasBody = true)
+    Call<Void> deleteObjects(
+            @Header("apikey") String apiKey,
+            @Header("Authorization") String authorization,
+            @Path("bucket") String bucket,
+            @Body DeleteObjectsRequest request
+    );
+
     // Inner classes untuk autentikasi
     class AuthRequest {
         private String email;
@@ -147,6 +273,53 @@ public interface SupabaseService {
         }
     }
 
+    class ListObjectsRequest {
+        private String prefix;
+        private int limit;
+        private int offset;
+
+        public ListObjectsRequest(String prefix, int limit, int offset) {
+            this.prefix = prefix;
+            this.limit = limit;
+            this.offset = offset;
+        }
+    }
+
+    class DeleteObjectsRequest {
+        private List<String> prefixes;
+
+        public DeleteObjectsRequest(List<String> prefixes) {
+            this.prefixes = prefixes;
+        }
+    }
+
+    // Folder tidak punya id (null)
+    class StorageObject {
+        private String id;
+        private String name;
+        private String created_at;
+        private String updated_at;
+
+        public String getId() { return id; }
+        public String getName() { return name; }
+        public String getCreatedAt() { return created_at; }
+        public String getUpdatedAt() { return updated_at; }
+    }
+
+    class CheckoutResult {
+        private String transaction_id;
+
+        public String getTransactionId() { return transaction_id; }
+    }
+
+    class StockRow {
+        private String id;
+        private int stock;
+
+        public String getId() { return id; }
+        public int getStock() { return stock; }
+    }
+
     class AuthResponse {
         private String access_token;
         private String token_type;
@@ -0,0 +1,104 @@
+package com.example.creamsyapp.product;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class TransactionItemAdapterTest {
+    private final Gson gson = new Gson();
+
+    @Test
+    public void readsRowWithEmbeddedProduct() {
+        TransactionItem item = gson.fromJson("{\"id\":\"7\",\"transaction_id\":\"3\",\"quantity\":2,"
+                + "\"price\":12500.5,\"product\":{\"id\":\"11\",\"name\":\"Es Krim\"}}", TransactionItem.class);
+
+        assertEquals("7", item.getId());
+        assertEquals("3", item.getTransactionId());
+        assertEquals(2, item.getQuantity());
+        assertEquals(12500.5, item.getPrice(), 0.0);
+        assertEquals("11", item.getProductId());
+        assertEquals("Es Krim", item.getProductName());
+    }
+
+    @Test
+    public void productIdColumnIsUsedWhenProductIsGone() {
+        TransactionItem item = gson.fromJson("{\"quantity\":1,\"price\":5000,\"product_id\":11,\"product\":null}",
+                TransactionItem.class);
+
+        assertEquals("11", item.getProductId());
+        assertNull(item.getProductName());
+    }
+
+    @Test
+    public void embeddedProductIdWinsOverColumn() {
+        TransactionItem item = gson.fromJson("{\"product_id\":\"11\",\"product\":{\"id\":\"12\",\"name\":\"Cone\"}}",
+                TransactionItem.class);
+
+        assertEquals("12", item.getProductId());
+    }
+
+    @Test
+    public void numericIdsAndNumericStringsAreAccepted() {
+        TransactionItem item = gson.fromJson("{\"id\":7,\"transaction_id\":3,\"quantity\":\"4\","
+                + "\"price\":\"1500\",\"product\":{\"id\":11}}", TransactionItem.class);
+
+        assertEquals("7", item.getId());
+        assertEquals("3", item.getTransactionId());
+        assertEquals(4, item.getQuantity());
+        assertEquals(1500.0, item.getPrice(), 0.0);
+        assertEquals("11", item.getProductId());
+    }
+
+    @Test
+    public void missingOrInvalidValuesFallBackToDefaults() {
+        TransactionItem item = gson.fromJson("{\"quantity\":null,\"price\":\"abc\",\"product\":null}",
+                TransactionItem.class);
+
+        assertNull(item.getId());
+        assertEquals(1, item.getQuantity());
+        assertEquals(0.0, item.getPrice(), 0.0);
+        assertNull(item.getProductId());
+        assertNull(item.getProductName());
+    }
+
+    @Test
+    public void unknownFieldsAreSkipped() {
+        TransactionItem item = gson.fromJson("{\"id\":\"1\",\"extra\":{\"a\":[1,2]},\"quantity\":3,"
+                + "\"product\":{\"id\":\"5\",\"image_url\":\"x\",\"name\":\"Cone\"},\"note\":\"n\"}", TransactionItem.class);
+
+        assertEquals("1", item.getId());
+        assertEquals(3, item.getQuantity());
+        assertEquals("5", item.getProductId());
+        assertEquals("Cone", item.getProductName());
+    }
+
+    @Test
+    public void nullRowReadsAsNull() {
+        List<TransactionItem> items = gson.fromJson("[null,{\"id\":\"1\"}]",
+                new TypeToken<List<TransactionItem>>() {}.getType());
+
+        assertEquals(2, items.size());
+        assertNull(items.get(0));
+        assertEquals("1", items.get(1).getId());
+    }
+
+    @Test
+    public void writeThenReadRoundTrips() {
+        TransactionItem original = new TransactionItem("7", "3", 2, 1500.0, "11", "Es Krim");
+
+        TransactionItem copy = gson.fromJson(gson.toJson(original), TransactionItem.class);
+
+        assertEquals(original.getId(), copy.getId());
+        assertEquals(original.getTransactionId(), copy.getTransactionId());
+        assertEquals(original.getQuantity(), copy.getQuantity());
+        assertEquals(original.getPrice(), copy.getPrice(), 0.0);
+        assertEquals(original.getProductId(), copy.getProductId());
+        assertEquals(original.getProductName(), copy.getProductName());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.creamsyapp.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class CommittedSalesTest {
+
+    @Test
+    public void committedSaleStaysSubtractedUntilConfirmed() {
+        CommittedSales sales = new CommittedSales();
+        long beforeCommit = sales.sequence();
+        sales.add(quantities("1", 2, "2", 1));
+
+        // Fetch yang dimulai sebelum commit belum tentu melihat pengurangan stok
+        sales.confirm(null, beforeCommit);
+        assertEquals(quantities("1", 2, "2", 1), sold(sales));
+
+        sales.confirm(null, sales.sequence());
+        assertTrue(sold(sales).isEmpty());
+    }
+
+    @Test
+    public void deltaSyncConfirmsOnlyReturnedProducts() {
+        CommittedSales sales = new CommittedSales();
+        sales.add(quantities("1", 2, "2", 1));
+        long startedAt = sales.sequence();
+        sales.add(quantities("1", 3));
+
+        sales.confirm(Collections.singleton("1"), startedAt);
+
+        // Produk 2 belum diganti fetch; penjualan kedua di-commit setelah fetch dimulai
+        assertEquals(quantities("1", 3, "2", 1), sold(sales));
+    }
+
+    @Test
+    public void quantitiesOfSeveralSalesAreSummed() {
+        CommittedSales sales = new CommittedSales();
+        sales.add(quantities("1", 2));
+        sales.add(quantities("1", 1, "3", 4));
+
+        assertEquals(quantities("1", 3, "3", 4), sold(sales));
+    }
+
+    @Test
+    public void clearDropsEverything() {
+        CommittedSales sales = new CommittedSales();
+        sales.add(quantities("1", 2));
+        sales.clear();
+
+        assertTrue(sold(sales).isEmpty());
+    }
+
+    private static Map<String, Integer> sold(CommittedSales sales) {
+        Map<String, Integer> sold = new HashMap<>();
+        sales.addTo(sold);
+        return sold;
+    }
+
+    private static Map<String, Integer> quantities(Object... pairs) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) quantities.put((String) pairs[i], (Integer) pairs[i + 1]);
+        return quantities;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.creamsyapp.supabase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class LaunchMetricsTest {
+
+    @Test
+    public void parseSkipsMalformedSamples() {
+        assertEquals(Arrays.asList(120L, 340L, 90L), LaunchMetrics.parse("120, 340,x,90"));
+        assertTrue(LaunchMetrics.parse(null).isEmpty());
+        assertTrue(LaunchMetrics.parse("").isEmpty());
+    }
+
+    @Test
+    public void percentileUsesNearestRank() {
+        List<Long> sorted = Arrays.asList(10L, 20L, 30L, 40L, 50L, 60L, 70L, 80L, 90L, 100L);
+        assertEquals(50L, LaunchMetrics.percentile(sorted, 50));
+        assertEquals(90L, LaunchMetrics.percentile(sorted, 90));
+        assertEquals(100L, LaunchMetrics.percentile(sorted, 100));
+        assertEquals(10L, LaunchMetrics.percentile(sorted, 0));
+        assertEquals(7L, LaunchMetrics.percentile(Collections.singletonList(7L), 90));
+    }
+
+    @Test
+    public void summarySortsSamplesBeforeReporting() {
+        assertEquals("cold: median 300 ms, p90 500 ms (n=5)",
+                LaunchMetrics.summary(LaunchMetrics.MODE_COLD, Arrays.asList(500L, 100L, 300L, 400L, 200L)));
+        assertEquals("preconnect: no samples",
+                LaunchMetrics.summary(LaunchMetrics.MODE_PRECONNECT, Collections.emptyList()));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.creamsyapp.supabase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+
+public class PostgrestErrorsTest {
+
+    @Test
+    public void codeIsReadFromErrorBody() {
+        assertEquals("42703", PostgrestErrors.codeOf(
+                error(400, "{\"code\":\"42703\",\"details\":null,\"hint\":null,\"message\":\"column transactions.client_ref does not exist\"}")));
+        assertEquals("PGRST202", PostgrestErrors.codeOf(
+                new CompletionException(error(404, "{\"code\": \"PGRST202\", \"message\": \"Could not find the function\"}"))));
+        assertNull(PostgrestErrors.codeOf(new SupabaseException("Network error: timeout", new IOException("timeout"))));
+        assertNull(PostgrestErrors.codeOf(null));
+    }
+
+    @Test
+    public void missingSchemaIsSchemaError() {
+        assertTrue(PostgrestErrors.isSchemaError(error(400, body("42703"))));
+        assertTrue(PostgrestErrors.isSchemaError(error(400, body("42P10"))));
+        assertTrue(PostgrestErrors.isSchemaError(error(404, body("42P01"))));
+        assertTrue(PostgrestErrors.isSchemaError(error(404, body("PGRST202"))));
+        assertTrue(PostgrestErrors.isSchemaError(error(400, body("PGRST204"))));
+    }
+
+    @Test
+    public void rejectedPayloadIsNotSchemaError() {
+        assertFalse(PostgrestErrors.isSchemaError(error(409, body("23503"))));
+        assertFalse(PostgrestErrors.isSchemaError(error(400, body("22P02"))));
+        assertFalse(PostgrestErrors.isSchemaError(error(400, body("PGRST102"))));
+        assertFalse(PostgrestErrors.isSchemaError(error(400, "Bad Request")));
+    }
+
+    @Test
+    public void missingColumnRequires400With42703() {
+        assertTrue(PostgrestErrors.isMissingColumn(error(400, body("42703"))));
+        assertFalse(PostgrestErrors.isMissingColumn(error(400, body("42P10"))));
+        // Angka 42703 di tempat lain pada pesan bukan kode error
+        assertFalse(PostgrestErrors.isMissingColumn(error(400, "{\"code\":\"22P02\",\"message\":\"invalid input 42703\"}")));
+    }
+
+    @Test
+    public void schemaErrorsKeepSalePending() {
+        assertFalse(CheckoutSyncEngine.isPermanentFailure(error(400, body("42703"))));
+        assertFalse(CheckoutSyncEngine.isPermanentFailure(error(400, body("42P10"))));
+        assertFalse(CheckoutSyncEngine.isPermanentFailure(error(404, body("PGRST202"))));
+        assertTrue(CheckoutSyncEngine.isPermanentFailure(error(400, body("22P02"))));
+        assertTrue(CheckoutSyncEngine.isPermanentFailure(error(409, body("23503"))));
+        assertFalse(CheckoutSyncEngine.isPermanentFailure(error(503, "Service Unavailable")));
+    }
+
+    private static SupabaseException error(int status, String body) {
+        return new SupabaseException("Checkout failed: " + body, status);
+    }
+
+    private static String body(String code) {
+        return "{\"code\":\"" + code + "\",\"details\":null,\"hint\":null,\"message\":\"error\"}";
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.creamsyapp.supabase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PostgrestFiltersTest {
+
+    @Test
+    public void inJoinsIdsWithoutSpaces() {
+        assertEquals("in.(1,2,3)", PostgrestFilters.in(Arrays.asList("1", "2", "3")));
+        assertEquals("in.(42)", PostgrestFilters.in(Collections.singletonList("42")));
+        assertEquals("in.()", PostgrestFilters.in(Collections.emptyList()));
+    }
+
+    @Test
+    public void chunkOfEmptyListIsEmpty() {
+        assertTrue(PostgrestFilters.chunk(Collections.emptyList(), PostgrestFilters.MAX_IN_IDS).isEmpty());
+    }
+
+    @Test
+    public void exactlyMaxIdsFitInOneFilter() {
+        List<List<String>> chunks = PostgrestFilters.chunk(ids(PostgrestFilters.MAX_IN_IDS), PostgrestFilters.MAX_IN_IDS);
+
+        assertEquals(1, chunks.size());
+        assertEquals(PostgrestFilters.MAX_IN_IDS, chunks.get(0).size());
+    }
+
+    @Test
+    public void oneOverMaxIdsSplitsIntoTwoFilters() {
+        int max = PostgrestFilters.MAX_IN_IDS;
+        List<List<String>> chunks = PostgrestFilters.chunk(ids(max + 1), max);
+
+        assertEquals(2, chunks.size());
+        assertEquals(max, chunks.get(0).size());
+        assertEquals(Collections.singletonList(String.valueOf(max)), chunks.get(1));
+        assertEquals("in.(" + max + ")", PostgrestFilters.in(chunks.get(1)));
+    }
+
+    @Test
+    public void chunksKeepEveryIdInOrderOnce() {
+        int max = PostgrestFilters.MAX_IN_IDS;
+        List<String> ids = ids(max * 3 - 1);
+
+        List<List<String>> chunks = PostgrestFilters.chunk(ids, max);
+        List<String> joined = new ArrayList<>();
+        for (List<String> chunk : chunks) {
+            assertTrue(chunk.size() <= max);
+            joined.addAll(chunk);
+        }
+
+        assertEquals(3, chunks.size());
+        assertEquals(max - 1, chunks.get(2).size());
+        assertEquals(ids, joined);
+    }
+
+    @Test
+    public void chunksAreIndependentCopies() {
+        List<String> ids = ids(3);
+        List<List<String>> chunks = PostgrestFilters.chunk(ids, 2);
+
+        ids.clear();
+        chunks.get(0).add("x");
+
+        assertEquals(Arrays.asList("0", "1", "x"), chunks.get(0));
+        assertEquals(Collections.singletonList("2"), chunks.get(1));
+    }
+
+    @Test
+    public void fullFilterStaysShortForUuidIds() {
+        List<String> uuids = new ArrayList<>();
+        for (int i = 0; i < PostgrestFilters.MAX_IN_IDS; i++) {
+            uuids.add(String.format("%08d-0000-4000-8000-000000000000", i));
+        }
+
+        String filter = PostgrestFilters.in(uuids);
+
+        // 100 UUID = 3.6 KB + pemisah, masih di bawah batas URL umum 8 KB
+        assertEquals(5 + 36 * uuids.size() + uuids.size() - 1, filter.length());
+        assertTrue(filter.length() < 4096);
+    }
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) ids.add(String.valueOf(i));
+        return ids;
+    }
+}
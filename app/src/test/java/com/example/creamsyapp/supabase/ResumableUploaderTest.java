@@ -0,0 +1,221 @@
+package com.example.creamsyapp.supabase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+// Uji protokol TUS ResumableUploader terhadap server pengganti lokal (MockWebServer)
+public class ResumableUploaderTest {
+    private static final int SIZE = 100 * 1024;
+    private static final String KEY = "product-images/abc.jpg:" + SIZE;
+
+    private MockWebServer server;
+    private MemoryStore store;
+    private ResumableUploader uploader;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        store = new MemoryStore();
+        // Tanpa jeda backoff; listener dipanggil langsung di thread upload
+        uploader = new ResumableUploader(new OkHttpClient(), server.url("/upload/resumable").toString(),
+                store, new RetryPolicy(0L, 0L, 3), Runnable::run);
+        data = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) data[i] = (byte) i;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void failedPatchResumesFromAcknowledgedOffset() throws Exception {
+        int acknowledged = 40_000;
+        server.enqueue(created("/upload/resumable/u1"));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(offset(200, acknowledged));
+        server.enqueue(offset(204, SIZE));
+
+        Result result = upload();
+
+        assertNull(result.error);
+        assertEquals("POST", server.takeRequest().getMethod());
+        RecordedRequest first = server.takeRequest();
+        assertEquals("PATCH", first.getMethod());
+        assertEquals("0", first.getHeader("Upload-Offset"));
+        assertEquals("HEAD", server.takeRequest().getMethod());
+        RecordedRequest resumed = server.takeRequest();
+        assertEquals("PATCH", resumed.getMethod());
+        assertEquals(String.valueOf(acknowledged), resumed.getHeader("Upload-Offset"));
+        assertEquals(SIZE - acknowledged, resumed.getBodySize());
+        assertEquals(data[acknowledged], resumed.getBody().readByte());
+        assertEquals(4, server.getRequestCount());
+        assertNull(store.get(KEY));
+    }
+
+    @Test
+    public void storedUploadUrlResumesWithoutCreate() throws Exception {
+        int acknowledged = 70_000;
+        store.put(KEY, server.url("/upload/resumable/u1").toString());
+        server.enqueue(offset(200, acknowledged));
+        server.enqueue(offset(204, SIZE));
+
+        Result result = upload();
+
+        assertNull(result.error);
+        assertEquals("HEAD", server.takeRequest().getMethod());
+        RecordedRequest patch = server.takeRequest();
+        assertEquals(String.valueOf(acknowledged), patch.getHeader("Upload-Offset"));
+        assertEquals(SIZE - acknowledged, patch.getBodySize());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void expiredStoredUploadUrlRestartsWithFreshPost() throws Exception {
+        store.put(KEY, server.url("/upload/resumable/old").toString());
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(created("/upload/resumable/new"));
+        server.enqueue(offset(204, SIZE));
+
+        Result result = upload();
+
+        assertNull(result.error);
+        assertEquals("/upload/resumable/old", server.takeRequest().getPath());
+        RecordedRequest create = server.takeRequest();
+        assertEquals("POST", create.getMethod());
+        assertEquals(String.valueOf(SIZE), create.getHeader("Upload-Length"));
+        RecordedRequest patch = server.takeRequest();
+        assertEquals("/upload/resumable/new", patch.getPath());
+        assertEquals("0", patch.getHeader("Upload-Offset"));
+        assertEquals(SIZE, patch.getBodySize());
+    }
+
+    @Test
+    public void uploadExpiringMidwayRestartsWithFreshPost() throws Exception {
+        server.enqueue(created("/upload/resumable/u1"));
+        server.enqueue(new MockResponse().setResponseCode(410));
+        server.enqueue(new MockResponse().setResponseCode(410));
+        server.enqueue(created("/upload/resumable/u2"));
+        server.enqueue(offset(204, SIZE));
+
+        Result result = upload();
+
+        assertNull(result.error);
+        assertEquals("POST", server.takeRequest().getMethod());
+        assertEquals("PATCH", server.takeRequest().getMethod());
+        assertEquals("HEAD", server.takeRequest().getMethod());
+        assertEquals("POST", server.takeRequest().getMethod());
+        RecordedRequest patch = server.takeRequest();
+        assertEquals("/upload/resumable/u2", patch.getPath());
+        assertEquals("0", patch.getHeader("Upload-Offset"));
+        assertNull(store.get(KEY));
+    }
+
+    @Test
+    public void progressIsReportedPerSegmentUpToTotal() throws Exception {
+        server.enqueue(created("/upload/resumable/u1"));
+        server.enqueue(offset(204, SIZE));
+
+        Result result = upload();
+
+        assertNull(result.error);
+        // Satu laporan awal (offset 0) lalu satu per segmen 16 KB yang terkirim
+        assertTrue(result.progress.size() > 2);
+        assertEquals(0L, (long) result.progress.get(0));
+        long previous = -1L;
+        for (long uploaded : result.progress) {
+            assertTrue(uploaded >= previous);
+            previous = uploaded;
+        }
+        assertEquals(SIZE, previous);
+        assertEquals(SIZE, result.total);
+    }
+
+    @Test
+    public void permanentChunkFailureIsReported() throws Exception {
+        server.enqueue(created("/upload/resumable/u1"));
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("bad chunk"));
+
+        Result result = upload();
+
+        assertTrue(result.error, result.error.startsWith("Upload chunk failed: 400"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private Result upload() throws InterruptedException {
+        Result result = new Result();
+        uploader.upload("product-images", "abc.jpg", "image/jpeg", data, "key", "Bearer token", result);
+        assertTrue("upload did not finish", result.done.await(10, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private static MockResponse created(String location) {
+        return new MockResponse().setResponseCode(201).setHeader("Location", location);
+    }
+
+    private static MockResponse offset(int code, long offset) {
+        return new MockResponse().setResponseCode(code).setHeader("Upload-Offset", offset);
+    }
+
+    private static class Result implements ResumableUploader.Listener {
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<Long> progress = new ArrayList<>();
+        volatile long total;
+        volatile String error;
+
+        @Override
+        public synchronized void onProgress(long uploaded, long total) {
+            progress.add(uploaded);
+            this.total = total;
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        @Override
+        public void onError(String error) {
+            this.error = error;
+            done.countDown();
+        }
+    }
+
+    private static class MemoryStore implements ResumableUploader.Store {
+        private final Map<String, String> urls = new HashMap<>();
+
+        @Override
+        public synchronized String get(String key) {
+            return urls.get(key);
+        }
+
+        @Override
+        public synchronized void put(String key, String uploadUrl) {
+            urls.put(key, uploadUrl);
+        }
+
+        @Override
+        public synchronized void remove(String key) {
+            urls.remove(key);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.creamsyapp.supabase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void delayStaysWithinExponentialCeiling() {
+        RetryPolicy policy = new RetryPolicy(500L, 8_000L, 4);
+        for (int attempt = 0; attempt < 8; attempt++) {
+            long ceiling = Math.min(8_000L, 500L << attempt);
+            for (int i = 0; i < 200; i++) {
+                long delay = policy.delayMillis(attempt);
+                assertTrue("attempt " + attempt + ": " + delay, delay >= 0 && delay <= ceiling);
+            }
+        }
+    }
+
+    @Test
+    public void delayIsJitteredAcrossFullRange() {
+        RetryPolicy policy = new RetryPolicy(1_000L, 1_000L, 1);
+        long min = Long.MAX_VALUE;
+        long max = 0L;
+        for (int i = 0; i < 1_000; i++) {
+            long delay = policy.delayMillis(0);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        // Full jitter: sebaran mencakup hampir seluruh [0, ceiling]
+        assertTrue(min < 100L);
+        assertTrue(max > 900L);
+    }
+
+    @Test
+    public void largeAttemptDoesNotOverflow() {
+        RetryPolicy policy = new RetryPolicy(500L, 8_000L, 4);
+        long delay = policy.delayMillis(Integer.MAX_VALUE);
+        assertTrue(delay >= 0 && delay <= 8_000L);
+    }
+
+    @Test
+    public void canRetryUpToMaxRetries() {
+        RetryPolicy policy = new RetryPolicy(0L, 0L, 2);
+        assertTrue(policy.canRetry(0));
+        assertTrue(policy.canRetry(1));
+        assertFalse(policy.canRetry(2));
+    }
+
+    @Test
+    public void onlyTransientStatusesAreRetryable() {
+        assertTrue(RetryPolicy.isRetryableStatus(408));
+        assertTrue(RetryPolicy.isRetryableStatus(429));
+        assertTrue(RetryPolicy.isRetryableStatus(500));
+        assertTrue(RetryPolicy.isRetryableStatus(503));
+        assertTrue(RetryPolicy.isRetryableStatus(599));
+        assertFalse(RetryPolicy.isRetryableStatus(400));
+        assertFalse(RetryPolicy.isRetryableStatus(401));
+        assertFalse(RetryPolicy.isRetryableStatus(404));
+        assertFalse(RetryPolicy.isRetryableStatus(409));
+        assertFalse(RetryPolicy.isRetryableStatus(422));
+        assertFalse(RetryPolicy.isRetryableStatus(600));
+    }
+
+    @Test
+    public void networkFailuresAreRetryable() {
+        assertTrue(RetryPolicy.isRetryableFailure(new IOException("connection reset")));
+        assertTrue(RetryPolicy.isRetryableFailure(new SocketTimeoutException("timeout")));
+        assertTrue(RetryPolicy.isRetryableFailure(new InterruptedIOException("timeout")));
+        assertTrue(RetryPolicy.isRetryableFailure(new UnknownHostException("no network")));
+    }
+
+    @Test
+    public void parseAndProgrammingFailuresAreNotRetryable() {
+        assertFalse(RetryPolicy.isRetryableFailure(new MalformedJsonException("Unterminated object")));
+        assertFalse(RetryPolicy.isRetryableFailure(new JsonSyntaxException("Expected BEGIN_ARRAY")));
+        assertFalse(RetryPolicy.isRetryableFailure(new JsonIOException("JSON document was not fully consumed.")));
+        assertFalse(RetryPolicy.isRetryableFailure(new IllegalStateException("Expected BEGIN_OBJECT but was STRING")));
+        assertFalse(RetryPolicy.isRetryableFailure(new NullPointerException()));
+    }
+
+    @Test
+    public void illegalStateFromGsonIsParseFailure() {
+        assertTrue(RetryPolicy.isParseFailure(thrown(() -> new JsonReader(new StringReader("\"x\"")).beginObject())));
+        assertTrue(RetryPolicy.isParseFailure(thrown(() -> new ThrowingAdapter().read(null))));
+        assertTrue(RetryPolicy.isParseFailure(
+                new IllegalStateException("decode failed", new MalformedJsonException("Unterminated object"))));
+    }
+
+    @Test
+    public void otherIllegalStateIsNotParseFailure() {
+        assertFalse(RetryPolicy.isParseFailure(new IllegalStateException("Expected BEGIN_OBJECT but was STRING")));
+        assertFalse(RetryPolicy.isParseFailure(new IllegalStateException("closed", new IllegalArgumentException())));
+        assertEquals("Request failed: closed", Futures.failureMessage(new IllegalStateException("closed")));
+    }
+
+    @Test
+    public void failureMessageSeparatesParseErrorsFromNetworkErrors() {
+        assertEquals("Network error: timeout",
+                Futures.failureMessage(new SocketTimeoutException("timeout")));
+        assertEquals("Failed to parse response: Unterminated object",
+                Futures.failureMessage(new MalformedJsonException("Unterminated object")));
+        assertEquals("Failed to parse response: Expected BEGIN_ARRAY",
+                Futures.failureMessage(new JsonSyntaxException("Expected BEGIN_ARRAY")));
+    }
+
+    private interface ThrowingCall {
+        void run() throws IOException;
+    }
+
+    private static Throwable thrown(ThrowingCall call) {
+        try {
+            call.run();
+        } catch (Throwable t) {
+            return t;
+        }
+        throw new AssertionError("expected an exception");
+    }
+
+    // TypeAdapter model yang menolak bentuk respons dengan IllegalStateException
+    private static class ThrowingAdapter extends TypeAdapter<Object> {
+        @Override
+        public void write(JsonWriter out, Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object read(JsonReader in) {
+            throw new IllegalStateException("Unexpected row shape");
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.creamsyapp.supabase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SingleFlightTest {
+    private AtomicLong coalesced;
+    private SingleFlight<String> flight;
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() {
+        coalesced = new AtomicLong();
+        flight = new SingleFlight<>(coalesced);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void concurrentCallsWithSameKeyShareOneLoad() throws Exception {
+        CompletableFuture<String> request = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.execute("products", () -> load(request));
+        CompletableFuture<String> second = flight.execute("products", () -> load(new CompletableFuture<>()));
+        CompletableFuture<String> third = flight.execute("products", () -> load(new CompletableFuture<>()));
+        request.complete("rows");
+
+        assertEquals(1, loads.get());
+        assertEquals(2, coalesced.get());
+        assertEquals("rows", first.get());
+        assertEquals("rows", second.get());
+        assertEquals("rows", third.get());
+    }
+
+    @Test
+    public void differentKeysLoadSeparately() {
+        flight.execute("products", () -> load(new CompletableFuture<>()));
+        flight.execute("transactions", () -> load(new CompletableFuture<>()));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, coalesced.get());
+    }
+
+    @Test
+    public void completedLoadIsNotReused() throws Exception {
+        assertEquals("a", flight.execute("products", () -> load(CompletableFuture.completedFuture("a"))).get());
+        assertEquals("b", flight.execute("products", () -> load(CompletableFuture.completedFuture("b"))).get());
+
+        assertEquals(2, loads.get());
+        assertEquals(0, coalesced.get());
+    }
+
+    @Test
+    public void eachCallerGetsOwnFuture() throws Exception {
+        CompletableFuture<String> request = new CompletableFuture<>();
+        CompletableFuture<String> first = flight.execute("products", () -> load(request));
+        CompletableFuture<String> second = flight.execute("products", () -> load(new CompletableFuture<>()));
+
+        assertNotSame(first, second);
+        assertNotSame(request, first);
+
+        // Pemanggil pertama membatalkan; request bersama dan pemanggil lain tidak terpengaruh
+        first.cancel(true);
+        assertFalse(request.isCancelled());
+        request.complete("rows");
+        assertTrue(first.isCancelled());
+        assertEquals("rows", second.get());
+    }
+
+    @Test
+    public void failureReachesEveryCallerAndClearsKey() throws Exception {
+        CompletableFuture<String> request = new CompletableFuture<>();
+        CompletableFuture<String> first = flight.execute("products", () -> load(request));
+        CompletableFuture<String> second = flight.execute("products", () -> load(new CompletableFuture<>()));
+        SupabaseException error = new SupabaseException("Server error: 500");
+        request.completeExceptionally(error);
+
+        assertSame(error, causeOf(first));
+        assertSame(error, causeOf(second));
+
+        // Key dilepas setelah gagal; panggilan berikutnya memuat ulang
+        flight.execute("products", () -> load(new CompletableFuture<>()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void loaderThrowingFailsFutureInsteadOfCaller() throws Exception {
+        IllegalStateException error = new IllegalStateException("boom");
+        CompletableFuture<String> result = flight.execute("products", () -> {
+            throw error;
+        });
+
+        assertSame(error, causeOf(result));
+        flight.execute("products", () -> load(new CompletableFuture<>()));
+        assertEquals(1, loads.get());
+    }
+
+    private CompletableFuture<String> load(CompletableFuture<String> request) {
+        loads.incrementAndGet();
+        return request;
+    }
+
+    private static Throwable causeOf(CompletableFuture<String> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("expected failure");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+}
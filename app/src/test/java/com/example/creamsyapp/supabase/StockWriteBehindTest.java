@@ -0,0 +1,343 @@
+package com.example.creamsyapp.supabase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class StockWriteBehindTest {
+    private static final long WINDOW = StockWriteBehind.WINDOW_MILLIS;
+
+    private FakeScheduler scheduler;
+    private FakeSender sender;
+    private MemoryStore store;
+    private StockWriteBehind writeBehind;
+    private int sales;
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+        sender = new FakeSender();
+        store = new MemoryStore();
+        writeBehind = newWriteBehind();
+    }
+
+    @Test
+    public void salesWithinWindowAreSentAsOneBatch() {
+        writeBehind.attach("kasir-a");
+        writeBehind.record("kasir-a", nextSale(), deltas("1", -2, "2", -1));
+        writeBehind.record("kasir-a", nextSale(), deltas("1", -1));
+        writeBehind.record("kasir-a", nextSale(), deltas("3", -4));
+
+        assertTrue(sender.calls.isEmpty());
+        assertEquals(Collections.singletonList(WINDOW), scheduler.delays());
+
+        scheduler.runAll();
+
+        assertEquals(1, sender.calls.size());
+        assertEquals(deltas("1", -3, "2", -1, "3", -4), sender.last().deltas);
+    }
+
+    @Test
+    public void reachingMaxSalesFlushesImmediately() {
+        writeBehind.attach("kasir-a");
+        for (int i = 0; i < StockWriteBehind.MAX_SALES; i++) {
+            writeBehind.record("kasir-a", nextSale(), deltas("1", -1));
+        }
+
+        assertEquals(Collections.singletonList(0L), scheduler.delays());
+        scheduler.runAll();
+        assertEquals(deltas("1", -StockWriteBehind.MAX_SALES), sender.last().deltas);
+    }
+
+    @Test
+    public void deltasCancellingOutAreNotSent() {
+        writeBehind.attach("kasir-a");
+        writeBehind.record("kasir-a", nextSale(), deltas("1", -2, "2", -1));
+        writeBehind.record("kasir-a", nextSale(), deltas("1", 2));
+        scheduler.runAll();
+
+        assertEquals(deltas("2", -1), sender.last().deltas);
+    }
+
+    @Test
+    public void failedFlushResendsSameBatchWithSameKey() {
+        writeBehind.attach("kasir-a");
+        writeBehind.record("kasir-a", nextSale(), deltas("1", -2));
+        scheduler.runAll();
+        Call first = sender.last();
+        first.callback.onError("Network error");
+
+        // Data tetap tertunda dan dijadwalkan ulang setelah jendela waktu
+        assertTrue(writeBehind.hasPending());
+        assertEquals(Collections.singletonList(WINDOW), scheduler.delays());
+
+        // Penjualan baru selama gagal tidak dicampur ke batch yang sudah punya key
+        writeBehind.record("kasir-a", nextSale(), deltas("1", -1));
+        scheduler.runAll();
+        Call retry = sender.last();
+        assertEquals(2, sender.calls.size());
+        assertEquals(first.key, retry.key);
+        assertEquals(deltas("1", -2), retry.deltas);
+
+        retry.callback.onSuccess(new HashMap<>(), new ArrayList<>());
+        Call next = sender.last();
+        assertEquals(3, sender.calls.size());
+        assertFalse(first.key.equals(next.key));
+        assertEquals(deltas("1", -1), next.deltas);
+
+        next.callback.onSuccess(new HashMap<>(), new ArrayList<>());
+        assertFalse(writeBehind.hasPending());
+
+        // Tidak ada delta tersisa di disk: instance baru tidak mengirim apa pun
+        StockWriteBehind restarted = newWriteBehind();
+        restarted.attach("kasir-a");
+        assertEquals(3, sender.calls.size());
+    }
+
+    @Test
+    public void sameSaleRecordedTwiceCountsOnce() {
+        writeBehind.attach("kasir-a");
+        writeBehind.record("kasir-a", "sale-1", deltas("1", -2));
+        // Engine mengulang entri yang sama (mis. proses mati sebelum commit journal)
+        writeBehind.record("kasir-a", "sale-1", deltas("1", -2));
+        writeBehind.record("kasir-a", "sale-2", deltas("1", -1));
+        scheduler.runAll();
+
+        assertEquals(1, sender.calls.size());
+        assertEquals(deltas("1", -3), sender.last().deltas);
+    }
+
+    @Test
+    public void saleRecordedAgainAfterFlushAndRestartIsIgnored() {
+        writeBehind.attach("kasir-a");
+        writeBehind.record("kasir-a", "sale-1", deltas("1", -2));
+        scheduler.runAll();
+        sender.last().callback.onSuccess(new HashMap<>(), new ArrayList<>());
+
+        StockWriteBehind restarted = newWriteBehind();
+        restarted.attach("kasir-a");
+        restarted.record("kasir-a", "sale-1", deltas("1", -2));
+        scheduler.runAll();
+
+        assertEquals(1, sender.calls.size());
+        assertFalse(restarted.hasPending());
+    }
+
+    @Test
+    public void onlyRecentSalesAreRemembered() {
+        writeBehind.attach("kasir-a");
+        for (int i = 0; i <= StockWriteBehind.MAX_RECORDED_SALES; i++) {
+            writeBehind.record("kasir-a", "sale-" + i, deltas("1", -1));
+            scheduler.runAll();
+            sender.last().callback.onSuccess(new HashMap<>(), new ArrayList<>());
+        }
+        int sent = sender.calls.size();
+
+        // sale-0 sudah tergeser; sale terbaru masih dikenali
+        writeBehind.record("kasir-a", "sale-" + StockWriteBehind.MAX_RECORDED_SALES, deltas("1", -1));
+        assertFalse(writeBehind.hasPending());
+        writeBehind.record("kasir-a", "sale-0", deltas("1", -1));
+        assertTrue(writeBehind.hasPending());
+        assertEquals(sent, sender.calls.size());
+    }
+
+    @Test
+    public void flushWaiterRunsAfterBatchIsAcknowledged() {
+        List<String> done = new ArrayList<>();
+        writeBehind.attach("kasir-a");
+        writeBehind.record("kasir-a", nextSale(), deltas("1", -1));
+        writeBehind.flush(() -> done.add("flushed"));
+        assertTrue(done.isEmpty());
+
+        sender.last().callback.onSuccess(new HashMap<>(), new ArrayList<>());
+        scheduler.runAll();
+        assertEquals(Collections.singletonList("flushed"), done);
+    }
+
+    @Test
+    public void recordCompletesAfterDurableWriteOnIoThread() {
+        List<Runnable> io = new ArrayList<>();
+        StockWriteBehind queued = new StockWriteBehind(sender, scheduler, io::add);
+        queued.setStore(store);
+        queued.attach("kasir-a");
+
+        CompletableFuture<Void> saved = queued.record("kasir-a", nextSale(), deltas("1", -2));
+
+        // Belum ada yang ditulis di thread pemanggil
+        assertFalse(saved.isDone());
+        assertEquals(0, store.durableWrites);
+
+        for (Runnable task : io) task.run();
+        assertTrue(saved.isDone());
+        assertEquals(1, store.durableWrites);
+        assertNotNull(store.read("kasir-a"));
+    }
+
+    @Test
+    public void stateQueuedForDiskIsSeenWhenSameUserReattaches() {
+        List<Runnable> io = new ArrayList<>();
+        StockWriteBehind queued = new StockWriteBehind(sender, scheduler, io::add);
+        queued.setStore(store);
+        queued.attach("kasir-a");
+        queued.record("kasir-a", nextSale(), deltas("1", -2));
+
+        // Logout lalu login lagi sebelum thread IO sempat menulis
+        queued.detach();
+        queued.attach("kasir-a");
+
+        assertEquals(deltas("1", -2), sender.last().deltas);
+    }
+
+    @Test
+    public void pendingDeltasSurviveRestartAndAreSentOnAttach() {
+        writeBehind.attach("kasir-a");
+        writeBehind.record("kasir-a", nextSale(), deltas("1", -2));
+
+        // Proses mati sebelum jendela habis: instance baru memuat delta dari store
+        StockWriteBehind restarted = newWriteBehind();
+        restarted.attach("kasir-a");
+
+        assertEquals(1, sender.calls.size());
+        assertEquals(deltas("1", -2), sender.last().deltas);
+    }
+
+    @Test
+    public void failedBatchSurvivesRestartWithItsKey() {
+        writeBehind.attach("kasir-a");
+        writeBehind.record("kasir-a", nextSale(), deltas("1", -2));
+        scheduler.runAll();
+        Call first = sender.last();
+        first.callback.onError("Network error");
+
+        StockWriteBehind restarted = newWriteBehind();
+        restarted.attach("kasir-a");
+
+        assertEquals(first.key, sender.last().key);
+        assertEquals(deltas("1", -2), sender.last().deltas);
+    }
+
+    @Test
+    public void detachKeepsDeltasForSameUser() {
+        writeBehind.attach("kasir-a");
+        writeBehind.record("kasir-a", nextSale(), deltas("1", -2));
+        writeBehind.detach();
+
+        assertFalse(writeBehind.hasPending());
+        scheduler.runAll();
+        assertTrue(sender.calls.isEmpty());
+
+        // User lain tidak mengirim delta kasir-a
+        writeBehind.attach("kasir-b");
+        assertTrue(sender.calls.isEmpty());
+
+        writeBehind.attach("kasir-a");
+        assertEquals(deltas("1", -2), sender.last().deltas);
+    }
+
+    private String nextSale() {
+        return "sale-" + (++sales);
+    }
+
+    private StockWriteBehind newWriteBehind() {
+        StockWriteBehind result = new StockWriteBehind(sender, scheduler, Runnable::run);
+        result.setStore(store);
+        return result;
+    }
+
+    private static Map<String, Integer> deltas(Object... pairs) {
+        Map<String, Integer> deltas = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) deltas.put((String) pairs[i], (Integer) pairs[i + 1]);
+        return deltas;
+    }
+
+    private static class Call {
+        final Map<String, Integer> deltas;
+        final String key;
+        final SupabaseHelper.StockCallback callback;
+
+        Call(Map<String, Integer> deltas, String key, SupabaseHelper.StockCallback callback) {
+            this.deltas = new LinkedHashMap<>(deltas);
+            this.key = key;
+            this.callback = callback;
+        }
+    }
+
+    private static class FakeSender implements StockWriteBehind.Sender {
+        final List<Call> calls = new ArrayList<>();
+
+        @Override
+        public void send(Map<String, Integer> deltas, String idempotencyKey, SupabaseHelper.StockCallback callback) {
+            calls.add(new Call(deltas, idempotencyKey, callback));
+        }
+
+        Call last() {
+            return calls.get(calls.size() - 1);
+        }
+    }
+
+    // Antrian tugas manual; runAll menjalankan semua tugas yang terjadwal tanpa menunggu jedanya
+    private static class FakeScheduler implements StockWriteBehind.Scheduler {
+        private final List<Runnable> tasks = new ArrayList<>();
+        private final List<Long> delays = new ArrayList<>();
+
+        @Override
+        public void post(Runnable task, long delayMillis) {
+            tasks.add(task);
+            delays.add(delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                if (tasks.get(i) == task) {
+                    tasks.remove(i);
+                    delays.remove(i);
+                }
+            }
+        }
+
+        List<Long> delays() {
+            return new ArrayList<>(delays);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                Runnable task = tasks.remove(0);
+                delays.remove(0);
+                task.run();
+            }
+        }
+    }
+
+    private static class MemoryStore implements StockWriteBehind.Store {
+        private final Map<String, String> states = new HashMap<>();
+        int durableWrites;
+
+        @Override
+        public String read(String owner) {
+            return states.get(owner);
+        }
+
+        @Override
+        public void write(String owner, String state, boolean durable) {
+            if (durable) durableWrites++;
+            if (state == null) {
+                states.remove(owner);
+            } else {
+                states.put(owner, state);
+            }
+        }
+    }
+}
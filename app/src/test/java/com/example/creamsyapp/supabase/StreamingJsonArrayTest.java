@@ -0,0 +1,156 @@
+package com.example.creamsyapp.supabase;
+
+import com.example.creamsyapp.product.Transaction;
+import com.example.creamsyapp.product.TransactionItem;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingJsonArrayTest {
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private final Gson gson = new Gson();
+
+    @Test
+    public void decode_deliversElementsInOrder() throws IOException {
+        List<Transaction> decoded = new ArrayList<>();
+        int count = StreamingJsonArray.decode(body(transactionsJson(3, 2)), gson, Transaction.class, decoded::add);
+
+        assertEquals(3, count);
+        assertEquals("1", decoded.get(0).getId());
+        assertEquals("3", decoded.get(2).getId());
+        assertEquals(2, decoded.get(1).getLineItems().size());
+        TransactionItem item = decoded.get(1).getLineItems().get(0);
+        assertEquals("Es Krim 0", item.getProductName());
+        assertEquals(2, item.getQuantity());
+    }
+
+    @Test
+    public void decode_nullBodyAndEmptyArray() throws IOException {
+        assertEquals(0, StreamingJsonArray.decode(body("null"), gson, Transaction.class, t -> { }));
+        assertEquals(0, StreamingJsonArray.decode(body("[]"), gson, Transaction.class, t -> { }));
+    }
+
+    @Test
+    public void decode_skipsNullElements() throws IOException {
+        List<Transaction> decoded = new ArrayList<>();
+        int count = StreamingJsonArray.decode(body("[null,{\"id\":\"7\",\"total\":5000}]"), gson, Transaction.class, decoded::add);
+
+        assertEquals(1, count);
+        assertEquals("7", decoded.get(0).getId());
+    }
+
+    // Micro-benchmark: decode per elemen vs decode lewat pohon JsonElement penuh (JsonParser lalu fromJson).
+    // Hasil dicetak ke output test; assert hanya memastikan kedua cara menghasilkan data yang sama.
+    @Test
+    public void benchmark_streamingVersusFullTree() throws IOException {
+        String json = transactionsJson(5_000, 3);
+        int rounds = 5;
+
+        // Pemanasan JIT
+        for (int i = 0; i < 3; i++) {
+            streamTotal(json);
+            treeTotal(json);
+        }
+
+        long streamNanos = 0;
+        long treeNanos = 0;
+        double streamSum = 0;
+        double treeSum = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            streamSum = streamTotal(json);
+            streamNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            treeSum = treeTotal(json);
+            treeNanos += System.nanoTime() - start;
+        }
+        assertEquals(treeSum, streamSum, 0.001);
+
+        long treeRetained = retainedBytes(() -> JsonParser.parseString(json));
+        long streamRetained = retainedBytes(() -> {
+            List<Transaction> batch = new ArrayList<>();
+            StreamingJsonArray.decode(body(json), gson, Transaction.class, t -> {
+                batch.add(t);
+                if (batch.size() >= 20) batch.clear();
+            });
+            return batch;
+        });
+        System.out.println(String.format(Locale.US,
+                "StreamingJsonArray benchmark (%d KB, 5000 rows): stream %.1f ms, full tree %.1f ms; "
+                        + "retained after decode: stream ~%d KB, tree ~%d KB",
+                json.length() / 1024, streamNanos / 1e6 / rounds, treeNanos / 1e6 / rounds,
+                streamRetained / 1024, treeRetained / 1024));
+        assertTrue(streamSum > 0);
+    }
+
+    private double streamTotal(String json) throws IOException {
+        double[] sum = {0};
+        StreamingJsonArray.decode(body(json), gson, Transaction.class, t -> sum[0] += t.getTotal());
+        return sum[0];
+    }
+
+    private double treeTotal(String json) throws IOException {
+        JsonArray tree;
+        try (ResponseBody body = body(json)) {
+            tree = JsonParser.parseReader(body.charStream()).getAsJsonArray();
+        }
+        double sum = 0;
+        for (JsonElement element : tree) sum += gson.fromJson(element, Transaction.class).getTotal();
+        return sum;
+    }
+
+    private interface Decode {
+        Object run() throws IOException;
+    }
+
+    // Perkiraan kasar heap yang masih dipegang hasil decode (hanya untuk dicetak)
+    private static long retainedBytes(Decode decode) throws IOException {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        Object result = decode.run();
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        if (result == null) throw new AssertionError();
+        return Math.max(0L, after - before);
+    }
+
+    private static ResponseBody body(String json) {
+        return ResponseBody.create(json, JSON);
+    }
+
+    private static String transactionsJson(int rows, int itemsPerRow) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 1; i <= rows; i++) {
+            if (i > 1) sb.append(',');
+            sb.append(String.format(Locale.US,
+                    "{\"id\":\"%d\",\"total\":%d,\"amount_paid\":%d,\"change\":%d,"
+                            + "\"ts_cursor\":\"2024-05-01T10:20:30.%06d+00:00\",\"transaction_items\":[",
+                    i, i * 1000, i * 1000 + 500, 500, i % 1_000_000));
+            for (int j = 0; j < itemsPerRow; j++) {
+                if (j > 0) sb.append(',');
+                sb.append(String.format(Locale.US,
+                        "{\"id\":\"%d\",\"transaction_id\":\"%d\",\"quantity\":2,\"price\":%d,"
+                                + "\"product\":{\"id\":\"%d\",\"name\":\"Es Krim %d\"}}",
+                        i * 10 + j, i, 500 + j, j, j));
+            }
+            sb.append("]}");
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,38 @@
+#!/bin/sh
+# Ukur time-to-first-product (launch -> produk pertama tampil) dengan dan tanpa preconnect
+# pada perangkat/emulator yang terhubung lewat adb. Aplikasi debug harus sudah terpasang dan
+# user sudah login (sesi dipulihkan saat launch). Setiap run adalah cold start (force-stop).
+#
+#   scripts/measure_ttfp.sh [runs_per_mode]
+#
+# Hasil: median/p90 per mode dari log "Time to first product summary".
+set -e
+RUNS=${1:-10}
+PKG=com.example.creamsyapp
+ACTIVITY=$PKG/.activity.AuthActivity
+WAIT_SECONDS=${WAIT_SECONDS:-8}
+
+launch() {
+    adb shell am force-stop "$PKG"
+    adb shell am start -W -n "$ACTIVITY" "$@" > /dev/null
+    sleep "$WAIT_SECONDS"
+}
+
+adb logcat -c
+# Run pemanasan tidak dihitung (DNS sistem, page cache APK); sampelnya dibuang oleh run terukur pertama
+launch --ez preconnect false
+
+i=0
+while [ "$i" -lt "$RUNS" ]; do
+    # Mode diselang-seling agar perubahan kondisi jaringan tersebar ke kedua mode
+    if [ "$i" -eq 0 ]; then
+        launch --ez preconnect false --ez clear_metrics true
+    else
+        launch --ez preconnect false
+    fi
+    launch --ez preconnect true
+    i=$((i + 1))
+done
+adb shell am force-stop "$PKG"
+
+adb logcat -d -s SupabaseHelper:I | grep "Time to first product summary" | tail -n 1
@@ -0,0 +1,31 @@
+-- Kolom products yang dibutuhkan delta sync (user-007) dan varian thumbnail (user-022).
+-- Aplikasi tetap berjalan tanpa migrasi ini (proyeksi lama, hard delete, tanpa delta sync),
+-- tetapi fitur tersebut baru aktif setelah migrasi diterapkan: supabase db push
+
+alter table public.products
+    add column if not exists updated_at timestamptz not null default now(),
+    add column if not exists deleted_at timestamptz,
+    add column if not exists image_sizes jsonb;
+
+-- updated_at dijaga server pada setiap update (termasuk soft delete), bukan oleh klien
+create or replace function public.products_touch_updated_at()
+returns trigger
+language plpgsql
+as $$
+begin
+    new.updated_at := now();
+    return new;
+end;
+$$;
+
+drop trigger if exists products_touch_updated_at on public.products;
+create trigger products_touch_updated_at
+    before update on public.products
+    for each row execute function public.products_touch_updated_at();
+
+-- Muat penuh (deleted_at is null, order id) dan delta sync (updated_at > watermark) per user
+create index if not exists products_user_updated_at_idx on public.products (user_id, updated_at);
+create index if not exists products_user_active_idx on public.products (user_id, id) where deleted_at is null;
+
+-- Beri tahu PostgREST agar cache skema memuat kolom baru
+notify pgrst, 'reload schema';
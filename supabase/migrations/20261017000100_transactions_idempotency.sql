@@ -0,0 +1,40 @@
+-- Kunci idempotensi untuk checkout alur lama (user-011): addTransaction mengirim
+-- on_conflict=client_ref dan saveTransactionItems mengirim on_conflict=transaction_id,product_id.
+-- Tanpa unique key ini PostgREST menjawab 400 (42P10) dan penjualan tertahan di journal.
+
+alter table public.transactions
+    add column if not exists client_ref text;
+
+-- Baris lama tanpa client_ref (null) tidak saling bentrok
+create unique index if not exists transactions_client_ref_key
+    on public.transactions (client_ref);
+
+-- Gabungkan item ganda (transaction_id, product_id) sebelum unique index dipasang;
+-- aplikasi sudah mengagregasi item per produk, jadi biasanya tidak ada yang terhapus
+with duplicates as (
+    select ctid,
+           sum(quantity) over (partition by transaction_id, product_id) as total_quantity,
+           row_number() over (partition by transaction_id, product_id order by ctid) as position
+    from public.transaction_items
+)
+update public.transaction_items items
+set quantity = duplicates.total_quantity
+from duplicates
+where items.ctid = duplicates.ctid
+  and duplicates.position = 1
+  and items.quantity <> duplicates.total_quantity;
+
+with duplicates as (
+    select ctid,
+           row_number() over (partition by transaction_id, product_id order by ctid) as position
+    from public.transaction_items
+)
+delete from public.transaction_items items
+using duplicates
+where items.ctid = duplicates.ctid
+  and duplicates.position > 1;
+
+create unique index if not exists transaction_items_transaction_product_key
+    on public.transaction_items (transaction_id, product_id);
+
+notify pgrst, 'reload schema';
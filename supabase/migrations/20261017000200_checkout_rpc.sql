@@ -0,0 +1,68 @@
+-- Checkout satu round trip (user-002): header transaksi, item, dan pengurangan stok dalam satu
+-- transaksi database. Dipanggil aplikasi lewat rpc/checkout; tanpa fungsi ini aplikasi jatuh ke
+-- alur lama (addTransaction + saveTransactionItems + adjust_stock) dengan semantik yang sama.
+-- Butuh transactions.client_ref dan unique key-nya dari 20261017000100_transactions_idempotency.sql.
+
+create or replace function public.checkout(
+    p_client_ref text,
+    p_total numeric,
+    p_amount_paid numeric,
+    p_change numeric,
+    p_items jsonb
+)
+returns jsonb
+language plpgsql
+security invoker
+set search_path = public
+as $$
+declare
+    v_user_id public.transactions.user_id%type := auth.uid();
+    v_transaction_id public.transactions.id%type;
+begin
+    if v_user_id is null then
+        raise exception 'checkout requires an authenticated user' using errcode = '28000';
+    end if;
+    if p_client_ref is null then
+        raise exception 'p_client_ref is required' using errcode = '22004';
+    end if;
+
+    insert into public.transactions (user_id, total, amount_paid, "change", client_ref)
+    values (v_user_id, p_total, p_amount_paid, p_change, p_client_ref)
+    on conflict (client_ref) do nothing
+    returning id into v_transaction_id;
+
+    -- Penjualan yang sama dikirim ulang (retry setelah timeout): kembalikan transaksi lama
+    -- tanpa menambah item atau mengurangi stok untuk kedua kalinya
+    if v_transaction_id is null then
+        select id into v_transaction_id
+        from public.transactions
+        where client_ref = p_client_ref and user_id = v_user_id;
+        if v_transaction_id is null then
+            raise exception 'client_ref % belongs to another user', p_client_ref using errcode = '42501';
+        end if;
+        return jsonb_build_object('transaction_id', v_transaction_id);
+    end if;
+
+    -- p_items: [{"product_id": ..., "quantity": 2, "price": 5000}, ...], sudah diagregasi per produk
+    insert into public.transaction_items (transaction_id, product_id, quantity, price)
+    select v_transaction_id, item.product_id, item.quantity, item.price
+    from jsonb_populate_recordset(null::public.transaction_items, p_items) as item;
+
+    update public.products as product
+    set stock = product.stock - sold.quantity
+    from (
+        select item.product_id, sum(item.quantity) as quantity
+        from jsonb_populate_recordset(null::public.transaction_items, p_items) as item
+        group by item.product_id
+    ) as sold
+    where product.id = sold.product_id
+      and product.user_id = v_user_id;
+
+    return jsonb_build_object('transaction_id', v_transaction_id);
+end;
+$$;
+
+revoke execute on function public.checkout(text, numeric, numeric, numeric, jsonb) from public, anon;
+grant execute on function public.checkout(text, numeric, numeric, numeric, jsonb) to authenticated;
+
+notify pgrst, 'reload schema';
@@ -0,0 +1,69 @@
+-- Perubahan stok massal untuk checkout alur lama (user-003). StockWriteBehind mengirim delta
+-- beberapa penjualan sekaligus lewat rpc/adjust_stock dengan idempotency key per batch;
+-- tanpa fungsi ini stok server tidak pernah berkurang pada alur lama.
+
+-- Key batch yang sudah diterapkan; hanya diakses lewat adjust_stock (RLS tanpa policy)
+create table if not exists public.stock_adjustments (
+    client_ref text primary key,
+    user_id uuid not null,
+    created_at timestamptz not null default now()
+);
+
+alter table public.stock_adjustments enable row level security;
+
+create or replace function public.adjust_stock(p_client_ref text, p_items jsonb)
+returns jsonb
+language plpgsql
+security definer
+set search_path = public
+as $$
+declare
+    v_user_id public.products.user_id%type := auth.uid();
+    v_applied boolean;
+    v_rows jsonb;
+begin
+    if auth.uid() is null then
+        raise exception 'adjust_stock requires an authenticated user' using errcode = '28000';
+    end if;
+    if p_client_ref is null then
+        raise exception 'p_client_ref is required' using errcode = '22004';
+    end if;
+
+    insert into public.stock_adjustments (client_ref, user_id)
+    values (p_client_ref, auth.uid())
+    on conflict (client_ref) do nothing;
+    v_applied := found;
+
+    -- p_items: [{"id": ..., "delta": -2}, ...]; batch yang dikirim ulang tidak mengubah stok lagi.
+    -- Security definer: pembatasan ke produk milik pemanggil dilakukan di sini, bukan oleh RLS.
+    if v_applied then
+        update public.products as product
+        set stock = product.stock + requested.delta
+        from (
+            select (jsonb_populate_record(null::public.products, item)).id as id,
+                   sum((item ->> 'delta')::integer) as delta
+            from jsonb_array_elements(p_items) as item
+            group by 1
+        ) as requested
+        where product.id = requested.id
+          and product.user_id = v_user_id;
+    end if;
+
+    -- Stok terkini untuk setiap produk yang ditemukan; id yang tidak ada dilaporkan klien sebagai notUpdated
+    select coalesce(jsonb_agg(jsonb_build_object('id', product.id, 'stock', product.stock)), '[]'::jsonb)
+    into v_rows
+    from public.products as product
+    where product.user_id = v_user_id
+      and product.id in (
+          select (jsonb_populate_record(null::public.products, item)).id
+          from jsonb_array_elements(p_items) as item
+      );
+
+    return v_rows;
+end;
+$$;
+
+revoke execute on function public.adjust_stock(text, jsonb) from public, anon;
+grant execute on function public.adjust_stock(text, jsonb) to authenticated;
+
+notify pgrst, 'reload schema';
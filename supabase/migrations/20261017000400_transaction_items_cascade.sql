@@ -0,0 +1,38 @@
+-- Hapus transaksi dalam satu DELETE (user-016): item ikut terhapus lewat ON DELETE CASCADE.
+-- Aplikasi tetap menghapus transaction_items lebih dulu saat menghapus per id, jadi migrasi ini
+-- terutama dibutuhkan oleh "hapus semua" (DELETE transactions?user_id=eq.X).
+
+do $$
+declare
+    v_constraint record;
+begin
+    -- FK lama tanpa cascade diganti; FK yang sudah cascade dibiarkan
+    for v_constraint in
+        select conname
+        from pg_constraint
+        where conrelid = 'public.transaction_items'::regclass
+          and confrelid = 'public.transactions'::regclass
+          and contype = 'f'
+          and confdeltype <> 'c'
+    loop
+        execute format('alter table public.transaction_items drop constraint %I', v_constraint.conname);
+    end loop;
+
+    if not exists (
+        select 1
+        from pg_constraint
+        where conrelid = 'public.transaction_items'::regclass
+          and confrelid = 'public.transactions'::regclass
+          and contype = 'f'
+    ) then
+        -- not valid: item yatim dari data lama tidak menggagalkan migrasi; cascade tetap berlaku
+        alter table public.transaction_items
+            add constraint transaction_items_transaction_id_fkey
+            foreign key (transaction_id) references public.transactions (id)
+            on delete cascade
+            not valid;
+    end if;
+end;
+$$;
+
+notify pgrst, 'reload schema';